@@ -0,0 +1,108 @@
+package it.overzoom.taf.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.overzoom.taf.dto.FcmCredentialStatsDTO;
+import it.overzoom.taf.dto.FcmSendResult;
+
+/**
+ * Tempo di un batch FCM contro un server locale con latenza simulata, al
+ * variare delle richieste contemporanee. L'HttpServer del JDK parla solo
+ * HTTP/1.1: il benchmark misura il parallelismo delle chiamate, non il
+ * multiplexing HTTP/2 verso Google.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FcmBatchBenchmark {
+
+    private static final int TOKENS = 2_000;
+    private static final long LATENCY_MILLIS = 20;
+    private static final byte[] OK_BODY = "{\"name\":\"projects/mock/messages/1\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({ "1", "16", "128" })
+    public int maxInFlight;
+
+    private HttpServer server;
+    private FcmNotificationServiceImpl service;
+    private List<String> tokens;
+
+    @Setup
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/projects/mock/messages:send", FcmBatchBenchmark::handle);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/projects/mock/messages:send";
+
+        FcmCredentialProvider credentials = new FcmCredentialProvider() {
+            @Override
+            public String getAccessToken() {
+                return "bench-token";
+            }
+
+            @Override
+            public FcmCredentialStatsDTO getStats() {
+                return new FcmCredentialStatsDTO();
+            }
+        };
+        service = new FcmNotificationServiceImpl(credentials, new SimpleMeterRegistry(), url, maxInFlight, 8, 300,
+                30);
+
+        tokens = new ArrayList<>(TOKENS);
+        for (int i = 0; i < TOKENS; i++) {
+            tokens.add("token-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public List<FcmSendResult> sendBatch() throws IOException {
+        return service.sendNotifications(tokens, "Nuovo evento", "Benchmark", Map.of("entityId", "bench"));
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, OK_BODY.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(OK_BODY);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package it.overzoom.taf.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Geolocalizzazione inversa su scala nazionale: circa 8.000 comuni sintetici
+ * che tassellano il rettangolo dell'Italia, ciascuno con una quarantina di
+ * vertici e confini irregolari condivisi con i vicini. Il confronto è tra la
+ * griglia e la scansione lineare (stessa classe con una sola cella).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PolygonGridIndexBenchmark {
+
+    private static final double MIN_LON = 6.6;
+    private static final double MAX_LON = 18.5;
+    private static final double MIN_LAT = 36.6;
+    private static final double MAX_LAT = 47.1;
+    private static final int COLUMNS = 80;
+    private static final int ROWS = 100;
+    private static final int SEGMENTS_PER_EDGE = 10;
+    private static final int QUERIES = 4096;
+
+    private PolygonGridIndex<Integer> grid;
+    private PolygonGridIndex<Integer> linear;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        double cellWidth = (MAX_LON - MIN_LON) / COLUMNS;
+        double cellHeight = (MAX_LAT - MIN_LAT) / ROWS;
+
+        // Vertici del reticolo con jitter, condivisi tra celle adiacenti
+        double[][][] lattice = new double[COLUMNS + 1][ROWS + 1][];
+        for (int i = 0; i <= COLUMNS; i++) {
+            for (int j = 0; j <= ROWS; j++) {
+                boolean border = i == 0 || j == 0 || i == COLUMNS || j == ROWS;
+                double jitterX = border ? 0 : (random.nextDouble() - 0.5) * cellWidth * 0.4;
+                double jitterY = border ? 0 : (random.nextDouble() - 0.5) * cellHeight * 0.4;
+                lattice[i][j] = new double[] { MIN_LON + i * cellWidth + jitterX, MIN_LAT + j * cellHeight + jitterY };
+            }
+        }
+
+        // Lati ondulati: calcolati una volta e percorsi in versi opposti dalle due celle
+        double[][][][] horizontal = new double[COLUMNS][ROWS + 1][][];
+        double[][][][] vertical = new double[COLUMNS + 1][ROWS][][];
+        for (int i = 0; i < COLUMNS; i++) {
+            for (int j = 0; j <= ROWS; j++) {
+                horizontal[i][j] = edge(lattice[i][j], lattice[i + 1][j], j == 0 || j == ROWS, random);
+            }
+        }
+        for (int i = 0; i <= COLUMNS; i++) {
+            for (int j = 0; j < ROWS; j++) {
+                vertical[i][j] = edge(lattice[i][j], lattice[i][j + 1], i == 0 || i == COLUMNS, random);
+            }
+        }
+
+        PolygonGridIndex.Builder<Integer> gridBuilder = PolygonGridIndex.builder();
+        PolygonGridIndex.Builder<Integer> linearBuilder = PolygonGridIndex.<Integer>builder()
+                .cellsPerShape(1.0 / (COLUMNS * ROWS));
+        for (int i = 0; i < COLUMNS; i++) {
+            for (int j = 0; j < ROWS; j++) {
+                double[][] ring = ring(horizontal[i][j], vertical[i + 1][j], horizontal[i][j + 1], vertical[i][j]);
+                double[][][][] multiPolygon = new double[][][][] { { ring } };
+                gridBuilder.add(i * ROWS + j, multiPolygon);
+                linearBuilder.add(i * ROWS + j, multiPolygon);
+            }
+        }
+        grid = gridBuilder.build();
+        linear = linearBuilder.build();
+
+        latitudes = new double[QUERIES];
+        longitudes = new double[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            latitudes[q] = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+            longitudes[q] = MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+        }
+    }
+
+    @Benchmark
+    public Object gridLookup() {
+        int q = next++ & (QUERIES - 1);
+        return grid.find(latitudes[q], longitudes[q]).orElse(null);
+    }
+
+    @Benchmark
+    public Object linearScan() {
+        int q = next++ & (QUERIES - 1);
+        return linear.find(latitudes[q], longitudes[q]).orElse(null);
+    }
+
+    private static double[][] edge(double[] from, double[] to, boolean straight, Random random) {
+        double dx = to[0] - from[0];
+        double dy = to[1] - from[1];
+        double amplitude = straight ? 0 : (random.nextDouble() - 0.5) * 0.15;
+        double[][] points = new double[SEGMENTS_PER_EDGE + 1][];
+        for (int k = 0; k <= SEGMENTS_PER_EDGE; k++) {
+            double t = (double) k / SEGMENTS_PER_EDGE;
+            double offset = amplitude * Math.sin(Math.PI * t);
+            // Spostamento perpendicolare al lato, nullo agli estremi
+            points[k] = new double[] { from[0] + dx * t - dy * offset, from[1] + dy * t + dx * offset };
+        }
+        return points;
+    }
+
+    // Anello chiuso: lato inferiore, destro, superiore e sinistro (gli ultimi due al contrario)
+    private static double[][] ring(double[][] bottom, double[][] right, double[][] top, double[][] left) {
+        double[][] ring = new double[4 * SEGMENTS_PER_EDGE + 1][];
+        int n = 0;
+        for (int k = 0; k < SEGMENTS_PER_EDGE; k++) {
+            ring[n++] = bottom[k];
+        }
+        for (int k = 0; k < SEGMENTS_PER_EDGE; k++) {
+            ring[n++] = right[k];
+        }
+        for (int k = SEGMENTS_PER_EDGE; k > 0; k--) {
+            ring[n++] = top[k];
+        }
+        for (int k = SEGMENTS_PER_EDGE; k > 0; k--) {
+            ring[n++] = left[k];
+        }
+        ring[n] = bottom[0];
+        return ring;
+    }
+}
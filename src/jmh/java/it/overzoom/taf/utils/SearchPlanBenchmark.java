@@ -0,0 +1,210 @@
+package it.overzoom.taf.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.overzoom.taf.dto.SearchRequest;
+
+/**
+ * Traduzione di una richiesta di /search in filtro e ordinamento Mongo, sul
+ * mix tipico dell'app: elenco per comune con tipo e tag, ricerca per testo,
+ * mappa con bbox, ordinamenti diversi. Il confronto è tra la traduzione da
+ * mappa con Criteria (com'era in BaseSearchController), il piano compilato a
+ * ogni richiesta e il piano letto dalla cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchPlanBenchmark {
+
+    private static final int REQUESTS = 1024;
+    private static final List<String> SEARCHABLE_FIELDS = List.of("title", "description", "address");
+    private static final List<String> TYPES = List.of("SPORT", "MUSIC", "FOOD", "CULTURE", "MARKET", "THEATRE");
+    private static final List<String> TAGS = List.of("famiglie", "gratis", "all'aperto", "bambini", "serale",
+            "centro storico", "accessibile", "cani ammessi");
+    private static final List<String> TERMS = List.of("sagra", "concerto jazz", "mercatino", "teatro", "corsa",
+            "mostra fotografica");
+
+    private final SearchPlanner planner = new SearchPlanner(SEARCHABLE_FIELDS, false, "location", Map.of(),
+            SearchPlanBenchmark::sort, SearchPlanner.DEFAULT_MAX_PLANS);
+    private final List<Criteria> scope = List.of(Criteria.where("municipalityId").in(List.of("trani", "bisceglie")));
+
+    private List<Map<String, Object>> maps;
+    private List<SearchRequest> requests;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ObjectMapper objectMapper = new ObjectMapper();
+        maps = new ArrayList<>(REQUESTS);
+        requests = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            Map<String, Object> map = request(random);
+            maps.add(map);
+            requests.add(objectMapper.convertValue(map, SearchRequest.class));
+        }
+    }
+
+    @Benchmark
+    public Object legacyCriteria() {
+        Map<String, Object> request = maps.get(next++ & (REQUESTS - 1));
+        Query query = new Query(legacyCriteria(request));
+        Sort sort = legacySort(request);
+        if (sort != null) {
+            query.with(sort);
+        }
+        return query.getQueryObject();
+    }
+
+    @Benchmark
+    public Object compiledPlan() {
+        SearchRequest request = requests.get(next++ & (REQUESTS - 1));
+        SearchPlan plan = planner.compile(planner.shapeOf(request));
+        return bind(plan, request);
+    }
+
+    @Benchmark
+    public Object cachedPlan() {
+        SearchRequest request = requests.get(next++ & (REQUESTS - 1));
+        return bind(planner.plan(request), request);
+    }
+
+    private Object bind(SearchPlan plan, SearchRequest request) {
+        Query query = plan.bind(request, scope);
+        if (plan.getSort() != null) {
+            query.with(plan.getSort());
+        }
+        return query.getQueryObject();
+    }
+
+    // Mix di richieste: circa metà elenchi filtrati, un quarto ricerche per testo, il resto mappa
+    private static Map<String, Object> request(Random random) {
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("municipalityIds", List.of("trani"));
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("page", random.nextInt(5));
+        request.put("limit", 20);
+        request.put("filters", filters);
+
+        int kind = random.nextInt(4);
+        if (kind <= 1) {
+            filters.put("type", pick(random, TYPES, 1 + random.nextInt(2)));
+            if (random.nextBoolean()) {
+                filters.put("tags", pick(random, TAGS, 1 + random.nextInt(3)));
+            }
+            if (random.nextInt(4) == 0) {
+                filters.put("organizer", "pro loco");
+            }
+        } else if (kind == 2) {
+            request.put("search", TERMS.get(random.nextInt(TERMS.size())));
+        } else {
+            double lat = 41.0 + random.nextDouble();
+            double lon = 16.0 + random.nextDouble();
+            request.put("bbox", Map.of("north", lat + 0.05, "south", lat, "east", lon + 0.05, "west", lon));
+            filters.put("type", pick(random, TYPES, 1));
+        }
+
+        Map<String, String> sort = new LinkedHashMap<>();
+        switch (random.nextInt(3)) {
+            case 0 -> sort.put("startDateTime", "asc");
+            case 1 -> {
+                sort.put("startDateTime", "desc");
+                sort.put("title", "asc");
+            }
+            default -> {
+            }
+        }
+        request.put("sort", sort);
+        return request;
+    }
+
+    private static List<String> pick(Random random, List<String> values, int count) {
+        List<String> picked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            picked.add(values.get(random.nextInt(values.size())));
+        }
+        return picked;
+    }
+
+    private static Sort sort(Map<String, String> sortMap) {
+        if (sortMap == null || sortMap.isEmpty()) {
+            return Sort.by(Sort.Order.asc("startDateTime"));
+        }
+        return Sort.by(sortMap.entrySet().stream()
+                .map(entry -> new Sort.Order(
+                        "desc".equalsIgnoreCase(entry.getValue()) ? Sort.Direction.DESC : Sort.Direction.ASC,
+                        entry.getKey()))
+                .toList());
+    }
+
+    private static Sort legacySort(Map<String, Object> request) {
+        Map<String, String> sortMap = new LinkedHashMap<>();
+        if (request.get("sort") instanceof Map<?, ?> map) {
+            map.forEach((key, value) -> {
+                if (key instanceof String field && value instanceof String direction) {
+                    sortMap.put(field, direction);
+                }
+            });
+        }
+        return sort(sortMap);
+    }
+
+    // Traduzione precedente: mappa letta a ogni richiesta, un Pattern e un Criteria per clausola
+    @SuppressWarnings("unchecked")
+    private Criteria legacyCriteria(Map<String, Object> request) {
+        Map<String, Object> filters = (Map<String, Object>) request.get("filters");
+        List<Criteria> andCriteria = new ArrayList<>(scope);
+
+        if (request.get("bbox") instanceof Map<?, ?> bbox) {
+            double north = ((Number) bbox.get("north")).doubleValue();
+            double south = ((Number) bbox.get("south")).doubleValue();
+            double east = ((Number) bbox.get("east")).doubleValue();
+            double west = ((Number) bbox.get("west")).doubleValue();
+            andCriteria.add(Criteria.where("location").within(GeoUtils.boundingBox(north, south, east, west)));
+        }
+
+        filters.forEach((key, value) -> {
+            if ("municipalityIds".equals(key) || "municipalityId".equals(key) || value == null) {
+                return;
+            }
+            if (value instanceof List<?> listValue) {
+                if (!listValue.isEmpty()) {
+                    andCriteria.add(Criteria.where(key).in(listValue));
+                }
+            } else if (value instanceof String strValue && !strValue.isEmpty()) {
+                andCriteria.add(
+                        Criteria.where(key).regex(Pattern.compile(Pattern.quote(strValue), Pattern.CASE_INSENSITIVE)));
+            }
+        });
+
+        String searchText = (String) request.get("search");
+        if (searchText != null && !searchText.isEmpty()) {
+            andCriteria.add(new Criteria().orOperator(SEARCHABLE_FIELDS.stream()
+                    .map(field -> Criteria.where(field)
+                            .regex(Pattern.compile(Pattern.quote(searchText), Pattern.CASE_INSENSITIVE)))
+                    .toArray(Criteria[]::new)));
+        }
+
+        return andCriteria.size() == 1 ? andCriteria.get(0)
+                : new Criteria().andOperator(andCriteria.toArray(new Criteria[0]));
+    }
+}
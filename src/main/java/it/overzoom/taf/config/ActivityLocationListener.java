@@ -0,0 +1,22 @@
+package it.overzoom.taf.config;
+
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import it.overzoom.taf.model.Activity;
+import it.overzoom.taf.utils.GeoUtils;
+
+/**
+ * Mantiene il campo GeoJSON location allineato a latitude/longitude a ogni
+ * salvataggio di un'attività, qualunque sia il percorso che lo esegue.
+ */
+@Component
+public class ActivityLocationListener extends AbstractMongoEventListener<Activity> {
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Activity> event) {
+        Activity activity = event.getSource();
+        activity.setLocation(GeoUtils.point(activity.getLatitude(), activity.getLongitude()));
+    }
+}
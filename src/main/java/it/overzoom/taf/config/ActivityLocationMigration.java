@@ -0,0 +1,82 @@
+package it.overzoom.taf.config;
+
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import it.overzoom.taf.model.Activity;
+import it.overzoom.taf.utils.GeoUtils;
+
+/**
+ * Migrazione all'avvio: valorizza il campo GeoJSON location delle attività
+ * salvate prima della sua introduzione, a partire da latitude e longitude.
+ * Tocca solo i documenti ancora senza location, quindi è idempotente.
+ */
+@Component
+public class ActivityLocationMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityLocationMigration.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public ActivityLocationMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query legacy = Query.query(Criteria.where("location").exists(false)
+                .and("latitude").type(1, 16, 18, 19)
+                .and("longitude").type(1, 16, 18, 19));
+        legacy.fields().include("_id").include("latitude").include("longitude");
+
+        long updated = 0;
+        long skipped = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, "activity")) {
+            for (Document activity : (Iterable<Document>) documents::iterator) {
+                GeoJsonPoint location = GeoUtils.point(number(activity.get("latitude")),
+                        number(activity.get("longitude")));
+                if (location == null) {
+                    skipped++;
+                    continue;
+                }
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class);
+                }
+                bulk.updateOne(Query.query(Criteria.where("_id").is(activity.get("_id"))),
+                        new Update().set("location", location));
+                updated++;
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+        if (updated > 0 || skipped > 0) {
+            log.info("Migrazione location attività completata: {} aggiornate, {} con coordinate non valide",
+                    updated, skipped);
+        }
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
@@ -0,0 +1,92 @@
+package it.overzoom.taf.config;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import it.overzoom.taf.model.EventRegistration;
+import it.overzoom.taf.type.RegistrationStatus;
+
+/**
+ * Migrazione all'avvio: sposta participants e checkInTimes dai documenti
+ * event alla collection event_registration. Le iscrizioni vengono create con
+ * upsert, per cui la migrazione è idempotente e può essere interrotta e
+ * ripresa senza duplicati.
+ */
+@Component
+public class EventRegistrationMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EventRegistrationMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public EventRegistrationMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query legacy = Query.query(new Criteria().orOperator(
+                Criteria.where("participants").exists(true),
+                Criteria.where("checkInTimes").exists(true)));
+        legacy.fields().include("_id").include("participants").include("checkInTimes");
+
+        long events = 0;
+        long registrations = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, "event")) {
+            for (Document event : (Iterable<Document>) documents::iterator) {
+                registrations += migrate(event);
+                events++;
+            }
+        }
+        if (events > 0) {
+            log.info("Migrazione iscrizioni completata: {} eventi, {} iscrizioni", events, registrations);
+        }
+    }
+
+    private int migrate(Document event) {
+        String eventId = event.get("_id").toString();
+        List<String> participants = event.getList("participants", String.class, List.of());
+        Document checkInTimes = event.get("checkInTimes", Document.class);
+
+        if (!participants.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventRegistration.class);
+            for (String userId : participants) {
+                Date checkIn = checkInTimes != null ? checkInTimes.getDate(userId) : null;
+                // eventId e userId vengono presi dal filtro di upsert
+                Update update = new Update()
+                        .setOnInsert("registeredAt", LocalDateTime.now())
+                        .setOnInsert("status", checkIn != null ? RegistrationStatus.CHECKED_IN
+                                : RegistrationStatus.REGISTERED);
+                if (checkIn != null) {
+                    update.setOnInsert("checkInTime", LocalDateTime.ofInstant(checkIn.toInstant(),
+                            ZoneId.systemDefault()));
+                }
+                bulk.upsert(Query.query(Criteria.where("eventId").is(eventId).and("userId").is(userId)), update);
+            }
+            bulk.execute();
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(event.get("_id"))),
+                new Update()
+                        .set("currentParticipants", participants.size())
+                        .unset("participants")
+                        .unset("checkInTimes"),
+                "event");
+        return participants.size();
+    }
+}
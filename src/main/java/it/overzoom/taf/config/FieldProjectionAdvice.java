@@ -0,0 +1,32 @@
+package it.overzoom.taf.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import it.overzoom.taf.utils.FieldProjection;
+
+/**
+ * Applica alla risposta JSON la proiezione registrata dal controller: dei DTO
+ * vengono scritti solo i campi selezionati, senza chiavi a null.
+ */
+@RestControllerAdvice
+public class FieldProjectionAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+            MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        Object projection = servletRequest.getServletRequest().getAttribute(FieldProjection.REQUEST_ATTRIBUTE);
+        if (projection instanceof FieldProjection fieldProjection) {
+            bodyContainer.setFilters(fieldProjection.filterProvider());
+        }
+    }
+}
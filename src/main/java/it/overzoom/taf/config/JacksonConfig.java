@@ -0,0 +1,17 @@
+package it.overzoom.taf.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import it.overzoom.taf.utils.FieldProjection;
+
+@Configuration
+public class JacksonConfig {
+
+    // Senza proiezione il filtro dei DTO serializza tutti i campi
+    @Bean
+    Jackson2ObjectMapperBuilderCustomizer fieldProjectionFilter() {
+        return builder -> builder.filters(FieldProjection.all().filterProvider());
+    }
+}
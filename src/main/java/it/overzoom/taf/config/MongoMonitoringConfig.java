@@ -0,0 +1,17 @@
+package it.overzoom.taf.config;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import it.overzoom.taf.service.MongoCommandMonitorImpl;
+
+@Configuration
+public class MongoMonitoringConfig {
+
+    // Il listener del driver vede tutti i comandi, sia di MongoTemplate sia dei repository
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandMonitorCustomizer(MongoCommandMonitorImpl monitor) {
+        return builder -> builder.addCommandListener(monitor);
+    }
+}
@@ -0,0 +1,32 @@
+package it.overzoom.taf.config;
+
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import it.overzoom.taf.model.Activity;
+import it.overzoom.taf.model.BaseEntity;
+import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.News;
+import it.overzoom.taf.utils.TextAnalyzer;
+
+/**
+ * Ricalcola a ogni salvataggio i campi normalizzati usati dai filtri per
+ * prefisso di /search (FilterMode.PREFIX), così restano allineati al testo
+ * originale qualunque sia il percorso di scrittura.
+ */
+@Component
+public class NormalizedFieldListener extends AbstractMongoEventListener<BaseEntity> {
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<BaseEntity> event) {
+        BaseEntity source = event.getSource();
+        if (source instanceof Activity activity) {
+            activity.setNameNormalized(TextAnalyzer.fold(activity.getName()));
+        } else if (source instanceof Event eventEntity) {
+            eventEntity.setTitleNormalized(TextAnalyzer.fold(eventEntity.getTitle()));
+        } else if (source instanceof News news) {
+            news.setTitleNormalized(TextAnalyzer.fold(news.getTitle()));
+        }
+    }
+}
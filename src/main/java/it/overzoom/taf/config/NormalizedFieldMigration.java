@@ -0,0 +1,82 @@
+package it.overzoom.taf.config;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import it.overzoom.taf.utils.SearchPlanner;
+import it.overzoom.taf.utils.TextAnalyzer;
+
+/**
+ * Migrazione all'avvio: valorizza i campi normalizzati dei filtri per
+ * prefisso nei documenti salvati prima della loro introduzione. Tocca solo i
+ * documenti che hanno il testo ma non ancora il campo, quindi è idempotente.
+ */
+@Component
+public class NormalizedFieldMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(NormalizedFieldMigration.class);
+    private static final int BATCH_SIZE = 500;
+
+    // Collection e campo di origine, allineati a NormalizedFieldListener
+    private static final List<String[]> FIELDS = List.of(
+            new String[] { "activity", "name" },
+            new String[] { "event", "title" },
+            new String[] { "news", "title" });
+
+    private final MongoTemplate mongoTemplate;
+
+    public NormalizedFieldMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String[] field : FIELDS) {
+            long updated = migrate(field[0], field[1], SearchPlanner.normalizedField(field[1]));
+            if (updated > 0) {
+                log.info("Migrazione {}.{} completata: {} documenti aggiornati", field[0],
+                        SearchPlanner.normalizedField(field[1]), updated);
+            }
+        }
+    }
+
+    private long migrate(String collection, String source, String target) {
+        Query legacy = Query.query(Criteria.where(target).exists(false).and(source).type(2));
+        legacy.fields().include("_id").include(source);
+
+        long updated = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, collection)) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+                }
+                bulk.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))),
+                        new Update().set(target, TextAnalyzer.fold(document.getString(source))));
+                updated++;
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+        return updated;
+    }
+}
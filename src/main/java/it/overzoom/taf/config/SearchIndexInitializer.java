@@ -0,0 +1,78 @@
+package it.overzoom.taf.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.News;
+
+/**
+ * Indici composti per le query che /search esegue davvero. L'ordine dei campi
+ * segue la regola uguaglianza, ordinamento, intervallo: prima municipalityId
+ * (lo scope dei non admin), poi il campo dell'ordinamento di default, infine
+ * gli intervalli. Così i risultati escono già ordinati dall'indice, senza
+ * SORT in memoria. _id segue il campo di ordinamento perché la paginazione a
+ * cursore lo aggiunge come ultimo criterio; le varianti senza municipalityId
+ * servono le ricerche degli admin.
+ *
+ * La creazione è idempotente; un conflitto con un indice esistente viene
+ * segnalato nei log senza bloccare l'avvio.
+ */
+@Component
+public class SearchIndexInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    private record IndexSpec(Class<?> entityClass, Index index) {
+    }
+
+    private static final List<IndexSpec> INDEXES = List.of(
+            // Eventi attivi del comune (endDateTime >= now) ordinati per data di inizio
+            new IndexSpec(Event.class, new Index()
+                    .on("municipalityId", Sort.Direction.ASC)
+                    .on("startDateTime", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .on("endDateTime", Sort.Direction.ASC)
+                    .named("event_scope_start_idx")),
+            new IndexSpec(Event.class, new Index()
+                    .on("startDateTime", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("event_start_idx")),
+            // News del comune dalla più recente
+            new IndexSpec(News.class, new Index()
+                    .on("municipalityId", Sort.Direction.ASC)
+                    .on("publicationDate", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("news_scope_publication_idx")),
+            new IndexSpec(News.class, new Index()
+                    .on("publicationDate", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("news_publication_idx")));
+
+    private final MongoTemplate mongoTemplate;
+
+    public SearchIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (IndexSpec spec : INDEXES) {
+            try {
+                mongoTemplate.indexOps(spec.entityClass()).ensureIndex(spec.index());
+            } catch (DataAccessException e) {
+                log.warn("Indice {} non creato su {}: {}", spec.index().getIndexOptions().get("name"),
+                        mongoTemplate.getCollectionName(spec.entityClass()), e.getMessage());
+            }
+        }
+    }
+}
@@ -2,21 +2,55 @@ package it.overzoom.taf.config;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import it.overzoom.taf.utils.SecurityUtils;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+        // Lo scraper Prometheus non può presentare i JWT di Cognito: usa una credenziale basic dedicata,
+        // valida solo per /actuator/prometheus
+        @Bean
+        @Order(1)
+        public SecurityFilterChain prometheusFilterChain(HttpSecurity http,
+                        @Value("${metrics.scrape.username}") String username,
+                        @Value("${metrics.scrape.password:}") String password) throws Exception {
+                http
+                                .securityMatcher("/actuator/prometheus")
+                                .csrf(csrf -> csrf.disable())
+                                .sessionManagement(session -> session
+                                                .sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+                if (password.isBlank()) {
+                        http.authorizeHttpRequests(authz -> authz.anyRequest().denyAll());
+                } else {
+                        http
+                                        .userDetailsService(new InMemoryUserDetailsManager(User.withUsername(username)
+                                                        .password(password).roles("METRICS").build()))
+                                        .authorizeHttpRequests(authz -> authz.anyRequest().hasRole("METRICS"))
+                                        .httpBasic(Customizer.withDefaults());
+                }
+                return http.build();
+        }
+
         @Bean
+        @Order(2)
         public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
                 http
                                 .cors(cors -> cors
@@ -26,13 +60,21 @@ public class SecurityConfig {
                                                 .requestMatchers(
                                                                 "/api/auth/login", "/api/auth/register",
                                                                 "/api/auth/confirm", "/api/auth/refresh-token",
-                                                                "/api/events/search", "/api/events/types",
-                                                                "/api/news/search",
-                                                                "/api/activities/search", "/api/activities/types",
+                                                                "/api/events/search", "/api/events/search/cursor",
+                                                                "/api/events/types",
+                                                                "/api/news/search", "/api/news/search/cursor",
+                                                                "/api/activities/search", "/api/activities/search/cursor",
+                                                                "/api/activities/types",
                                                                 "/api/activities/tags",
+                                                                "/api/search/suggest",
                                                                 "/swagger-ui.html", "/swagger-ui/**", "/api-docs/**",
-                                                                "/api/public/**")
+                                                                "/api/public/**",
+                                                                "/actuator/health")
                                                 .permitAll()
+                                                // Gli altri endpoint di Actuator solo per gli admin
+                                                .requestMatchers("/actuator/**")
+                                                .access((authentication, context) -> new AuthorizationDecision(
+                                                                SecurityUtils.isAdmin()))
                                                 .requestMatchers(HttpMethod.GET, "/api/activities/*").permitAll()
                                                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                                                 .anyRequest().authenticated())
@@ -55,6 +97,7 @@ public class SecurityConfig {
                 config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
                 config.addAllowedHeader("*");
                 config.addAllowedMethod("*");
+                config.addExposedHeader("X-Total-Count");
                 config.setAllowCredentials(true);
 
                 UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -12,6 +12,7 @@ import java.util.stream.Collectors;
 import org.apache.coyote.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -30,18 +31,16 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import it.overzoom.taf.dto.ActivityDTO;
+import it.overzoom.taf.dto.ActivityMapDTO;
 import it.overzoom.taf.dto.EnumDTO;
+import it.overzoom.taf.dto.SearchRequest;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.mapper.ActivityMapper;
 import it.overzoom.taf.model.Activity;
-import it.overzoom.taf.model.Municipal;
-import it.overzoom.taf.model.User;
 import it.overzoom.taf.service.ActivityService;
-import it.overzoom.taf.service.MunicipalService;
-import it.overzoom.taf.service.UserService;
 import it.overzoom.taf.type.ActivityTagType;
 import it.overzoom.taf.type.ActivityType;
-import it.overzoom.taf.utils.SecurityUtils;
+import it.overzoom.taf.type.FilterMode;
 import jakarta.validation.Valid;
 
 @RestController
@@ -49,20 +48,26 @@ import jakarta.validation.Valid;
 public class ActivityController extends BaseSearchController<Activity, ActivityDTO> {
 
     private static final Logger log = LoggerFactory.getLogger(ActivityController.class);
+    private static final Map<String, List<String>> VIEWS = Map.of(
+            "card", List.of("name", "type", "address", "latitude", "longitude", "cover", "logo",
+                    "municipalityId"),
+            "detail", List.of("version", "name", "address", "latitude", "longitude", "phone", "photos",
+                    "cover", "logo", "email", "openingHours", "website", "description", "type", "tags",
+                    "municipalityId"));
     private final ActivityService activityService;
     private final ActivityMapper activityMapper;
-    private final MunicipalService municipalService;
-    private final UserService userService;
+    private final int detailZoom;
+    private final int maxDetailActivities;
 
     public ActivityController(
             ActivityService activityService,
             ActivityMapper activityMapper,
-            MunicipalService municipalService,
-            UserService userService) {
+            @Value("${map.cluster.detail-zoom:17}") int detailZoom,
+            @Value("${map.cluster.max-detail-activities:500}") int maxDetailActivities) {
         this.activityService = activityService;
         this.activityMapper = activityMapper;
-        this.municipalService = municipalService;
-        this.userService = userService;
+        this.detailZoom = detailZoom;
+        this.maxDetailActivities = maxDetailActivities;
     }
 
     @Override
@@ -80,52 +85,39 @@ public class ActivityController extends BaseSearchController<Activity, ActivityD
         return activityMapper::toDto;
     }
 
+    @Override
+    protected boolean hasTextIndex() {
+        return true;
+    }
+
     @Override
     protected List<String> getSearchableFields() {
         return List.of("name", "address", "description", "municipalityId", "type", "tags");
     }
 
     @Override
-    protected List<Criteria> getExtraCriteriaForCurrentUser(Map<String, Object> request) {
-        try {
-            if (SecurityUtils.isAdmin())
-                return List.of();
-
-            String userId = SecurityUtils.getCurrentUserId();
-            User user = userService.findByUserId(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato"));
-            String[] allowedMunicipalityIds = user.getMunicipalityIds();
-            if (allowedMunicipalityIds == null || allowedMunicipalityIds.length == 0) {
-                Municipal municipal = municipalService.getDefaultMunicipal()
-                        .orElseThrow(() -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                return List.of(Criteria.where("municipalityId").is(municipal.getId()));
-            }
-
-            Map<String, Object> filtersObj = (Map<String, Object>) request.get("filters");
-            List<String> filteredIds = null;
-            if (filtersObj != null && filtersObj.containsKey("municipalityIds")) {
-                Object val = filtersObj.get("municipalityIds");
-                if (val instanceof List<?> list) {
-                    filteredIds = list.stream()
-                            .map(Object::toString)
-                            .filter(id -> java.util.Arrays.asList(allowedMunicipalityIds).contains(id))
-                            .toList();
-                }
-            }
-
-            List<String> actualIds = (filteredIds != null) ? filteredIds : List.of(allowedMunicipalityIds);
-
-            if (actualIds.isEmpty()) {
-                Municipal defaultMunicipal = municipalService.getDefaultMunicipal()
-                        .orElseThrow(() -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-            }
-            return List.of(Criteria.where("municipalityId").in(actualIds));
-        } catch (ResourceNotFoundException ex) {
-            Municipal defaultMunicipal = municipalService.getDefaultMunicipal().orElse(null);
-            return List.of(Criteria.where("municipalityId")
-                    .is(defaultMunicipal != null ? defaultMunicipal.getId() : "__NO_MATCH__"));
-        }
+    protected Map<String, List<String>> getViews() {
+        return VIEWS;
+    }
+
+    @Override
+    protected List<String> getFacetFields() {
+        return List.of("type", "tags", "municipalityId");
+    }
+
+    @Override
+    protected Map<String, FilterMode> getFilterModes() {
+        return Map.of("type", FilterMode.EXACT, "name", FilterMode.PREFIX);
+    }
+
+    @Override
+    protected String getGeoLocationField() {
+        return "location";
+    }
+
+    @Override
+    protected List<Criteria> getExtraCriteriaForCurrentUser(SearchRequest request) {
+        return getMunicipalityScopeCriteria(request, true);
     }
 
     @GetMapping("/{id}")
@@ -318,4 +310,66 @@ public class ActivityController extends BaseSearchController<Activity, ActivityD
         return ResponseEntity.ok(dtos);
     }
 
+    @GetMapping("/clusters")
+    @Operation(summary = "Attività raggruppate per la mappa", description = "Sotto lo zoom di dettaglio restituisce cluster aggregati su griglia (numero, baricentro, tipo dominante); dallo zoom di dettaglio in su restituisce le attività complete, fino a un massimo configurato.", parameters = {
+            @Parameter(name = "north", description = "Latitudine massima", required = true),
+            @Parameter(name = "south", description = "Latitudine minima", required = true),
+            @Parameter(name = "east", description = "Longitudine massima", required = true),
+            @Parameter(name = "west", description = "Longitudine minima", required = true),
+            @Parameter(name = "zoom", description = "Livello di zoom della mappa (0-22)", required = true),
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Cluster o attività nella finestra"),
+            @ApiResponse(responseCode = "400", description = "Livello di zoom non valido")
+    })
+    public ResponseEntity<ActivityMapDTO> getActivityClusters(
+            @RequestParam double north,
+            @RequestParam double south,
+            @RequestParam double east,
+            @RequestParam double west,
+            @RequestParam int zoom) throws BadRequestException {
+        if (zoom < 0 || zoom > 22) {
+            throw new BadRequestException("Il livello di zoom deve essere compreso tra 0 e 22.");
+        }
+        if (zoom < detailZoom) {
+            return ResponseEntity.ok(ActivityMapDTO.ofClusters(zoom,
+                    activityService.findClustersInBounds(north, south, east, west, zoom)));
+        }
+
+        // Un elemento in più indica che la finestra contiene altre attività
+        List<Activity> activities = activityService.findActivitiesInBounds(north, south, east, west,
+                maxDetailActivities + 1);
+        boolean truncated = activities.size() > maxDetailActivities;
+        List<ActivityDTO> dtos = (truncated ? activities.subList(0, maxDetailActivities) : activities).stream()
+                .map(activityMapper::toDto)
+                .toList();
+        return ResponseEntity.ok(ActivityMapDTO.ofActivities(zoom, dtos, truncated));
+    }
+
+    @GetMapping("/near")
+    @Operation(summary = "Attività più vicine", description = "Restituisce le attività più vicine al punto indicato, ordinate per distanza crescente.", parameters = {
+            @Parameter(name = "latitude", description = "Latitudine del punto", required = true),
+            @Parameter(name = "longitude", description = "Longitudine del punto", required = true),
+            @Parameter(name = "maxDistance", description = "Distanza massima in metri"),
+            @Parameter(name = "limit", description = "Numero massimo di attività restituite (massimo 100)"),
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Lista attività ordinate per distanza"),
+            @ApiResponse(responseCode = "400", description = "Coordinate o parametri non validi")
+    })
+    public ResponseEntity<List<ActivityDTO>> getNearestActivities(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "2000") double maxDistance,
+            @RequestParam(defaultValue = "20") int limit) throws BadRequestException {
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            throw new BadRequestException("Coordinate non valide.");
+        }
+        if (maxDistance <= 0 || limit <= 0) {
+            throw new BadRequestException("maxDistance e limit devono essere positivi.");
+        }
+        List<Activity> activities = activityService.findNearestActivities(latitude, longitude, maxDistance,
+                Math.min(limit, 100));
+        List<ActivityDTO> dtos = activities.stream().map(activityMapper::toDto).toList();
+        return ResponseEntity.ok(dtos);
+    }
+
 }
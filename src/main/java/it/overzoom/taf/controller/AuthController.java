@@ -26,8 +26,9 @@ import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.mapper.UserMapper;
 import it.overzoom.taf.model.Municipal;
 import it.overzoom.taf.model.User;
-import it.overzoom.taf.repository.MunicipalRepository;
 import it.overzoom.taf.repository.UserRepository;
+import it.overzoom.taf.service.MunicipalRegistry;
+import it.overzoom.taf.service.TenantScopeResolver;
 import it.overzoom.taf.utils.SecurityUtils;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.AttributeType;
@@ -48,8 +49,9 @@ public class AuthController {
 
     private final CognitoIdentityProviderClient cognito;
     private final UserRepository userRepository;
-    private final MunicipalRepository municipalRepository;
+    private final MunicipalRegistry municipalRegistry;
     private final UserMapper userMapper;
+    private final TenantScopeResolver tenantScopeResolver;
     private final String clientId;
     private final String clientSecret;
     private final String userPoolId;
@@ -57,14 +59,16 @@ public class AuthController {
     public AuthController(CognitoIdentityProviderClient cognito,
             UserRepository userRepository,
             UserMapper userMapper,
-            MunicipalRepository municipalRepository,
+            MunicipalRegistry municipalRegistry,
+            TenantScopeResolver tenantScopeResolver,
             @Value("${COGNITO_CLIENT_ID}") String clientId,
             @Value("${COGNITO_CLIENT_SECRET}") String clientSecret,
             @Value("${COGNITO_USER_POOL_ID}") String userPoolId) {
         this.cognito = cognito;
         this.userRepository = userRepository;
-        this.municipalRepository = municipalRepository;
+        this.municipalRegistry = municipalRegistry;
         this.userMapper = userMapper;
+        this.tenantScopeResolver = tenantScopeResolver;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.userPoolId = userPoolId;
@@ -178,12 +182,13 @@ public class AuthController {
             user.setSurname(req.surname);
             user.setRoles(new String[] { "ROLE_USER" });
 
-            Municipal municipal = municipalRepository.findByCityAndProvince("Trani", "BT")
+            Municipal municipal = municipalRegistry.getDefault()
                     .orElseThrow(() -> new ResourceNotFoundException("Default municipality not found"));
 
             user.setMunicipalityIds(new String[] { municipal.getId() });
 
             User responseFromRegistry = userRepository.save(user);
+            tenantScopeResolver.evict(userSub);
 
             return ResponseEntity.ok(Map.of(
                     "userConfirmed", signUpResponse.userConfirmed(),
@@ -1,12 +1,20 @@
 package it.overzoom.taf.controller;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.coyote.BadRequestException;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -14,23 +22,76 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import it.overzoom.taf.dto.CursorPageDTO;
+import it.overzoom.taf.dto.FacetBucketDTO;
+import it.overzoom.taf.dto.FacetPageDTO;
+import it.overzoom.taf.dto.SearchRequest;
+import it.overzoom.taf.dto.TenantScope;
 import it.overzoom.taf.model.Event;
 import it.overzoom.taf.model.News;
+import it.overzoom.taf.service.QueryPlanSampler;
+import it.overzoom.taf.service.TenantScopeResolver;
+import it.overzoom.taf.type.ExportFormat;
+import it.overzoom.taf.type.FilterMode;
+import it.overzoom.taf.utils.ExportWriter;
+import it.overzoom.taf.utils.FieldProjection;
+import it.overzoom.taf.utils.SearchCursor;
+import it.overzoom.taf.utils.SearchPlan;
+import it.overzoom.taf.utils.SearchPlanner;
+import it.overzoom.taf.utils.SecurityUtils;
 
 public abstract class BaseSearchController<T, DTO> {
 
+    // Modalità di conteggio accettate dal campo "count" della richiesta di ricerca
+    private static final String COUNT_EXACT = "exact";
+    private static final String COUNT_NONE = "none";
+    private static final String COUNT_CAPPED = "capped";
+    private static final String COUNT_ESTIMATED = "estimated";
+    private static final int DEFAULT_COUNT_CAP = 1000;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final ExecutorService COUNT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int MAX_FACET_BUCKETS = 50;
+    private static final String NO_MATCH = "__NO_MATCH__";
+
     @Autowired
     protected MongoTemplate mongoTemplate;
 
+    @Autowired
+    protected TenantScopeResolver tenantScopeResolver;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QueryPlanSampler queryPlanSampler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile SearchPlanner searchPlanner;
+    private final Map<String, DistributionSummary> resultSizes = new ConcurrentHashMap<>();
+
     protected abstract String getCollectionName();
 
     protected abstract Class<T> getEntityClass();
@@ -41,136 +102,381 @@ public abstract class BaseSearchController<T, DTO> {
         return List.of();
     }
 
-    protected List<Criteria> getExtraCriteriaForCurrentUser(Map<String, Object> request) {
+    // true se la collection ha un indice testuale: la ricerca usa $text ordinato per punteggio
+    protected boolean hasTextIndex() {
+        return false;
+    }
+
+    // Campo GeoJSON con indice 2dsphere: se presente, il bbox usa $geoWithin al posto di latitude/longitude
+    protected String getGeoLocationField() {
+        return null;
+    }
+
+    // Viste predefinite per "view" (almeno "card" e "detail"); "detail" elenca anche i campi ammessi in "fields"
+    protected Map<String, List<String>> getViews() {
+        return Map.of();
+    }
+
+    protected FieldProjection getFieldProjection(SearchRequest request) throws BadRequestException {
+        return FieldProjection.resolve(request.getFields(), request.getView(), getViews());
+    }
+
+    // Semantica dei filtri stringa per campo; i campi non elencati usano CONTAINS.
+    // PREFIX richiede il campo normalizzato (SearchPlanner.normalizedField) con il suo indice.
+    protected Map<String, FilterMode> getFilterModes() {
+        return Map.of();
+    }
+
+    // Campi su cui /search può restituire i conteggi per valore (opzione "facets")
+    protected List<String> getFacetFields() {
+        return List.of();
+    }
+
+    protected List<Criteria> getExtraCriteriaForCurrentUser(SearchRequest request) {
         return List.of();
     }
 
+    protected List<Criteria> getMunicipalityScopeCriteria(SearchRequest request, boolean defaultForUnknownUser) {
+        return getMunicipalityScopeCriteria(request, defaultForUnknownUser, List.of());
+    }
+
+    // Limita la ricerca ai comuni dell'utente corrente (admin escluso), con lo scope letto dalla cache.
+    // userCriteria si aggiunge solo quando si filtra sui comuni dell'utente, non sul comune predefinito.
+    protected List<Criteria> getMunicipalityScopeCriteria(SearchRequest request, boolean defaultForUnknownUser,
+            List<Criteria> userCriteria) {
+        if (SecurityUtils.isAdmin()) {
+            return List.of();
+        }
+
+        Optional<TenantScope> scope = SecurityUtils.getCurrentUserIdOpt().flatMap(tenantScopeResolver::resolve);
+        if (scope.isEmpty()) {
+            // Utente non autenticato o non registrato
+            return List.of(defaultForUnknownUser ? defaultMunicipalityCriteria()
+                    : Criteria.where("municipalityId").is(NO_MATCH));
+        }
+
+        List<String> allowedMunicipalityIds = scope.get().getMunicipalityIds();
+        if (allowedMunicipalityIds.isEmpty()) {
+            return List.of(defaultMunicipalityCriteria());
+        }
+
+        List<String> actualIds = allowedMunicipalityIds;
+        List<String> requestedIds = request.getMunicipalityIds();
+        if (requestedIds != null) {
+            actualIds = requestedIds.stream()
+                    .filter(allowedMunicipalityIds::contains)
+                    .toList();
+        }
+        if (actualIds.isEmpty()) {
+            return List.of(defaultMunicipalityCriteria());
+        }
+
+        List<Criteria> criteriaList = new ArrayList<>();
+        criteriaList.add(Criteria.where("municipalityId").in(actualIds));
+        criteriaList.addAll(userCriteria);
+        return criteriaList;
+    }
+
+    private Criteria defaultMunicipalityCriteria() {
+        return Criteria.where("municipalityId").is(tenantScopeResolver.getDefaultMunicipalityId().orElse(NO_MATCH));
+    }
+
     @PostMapping("/search")
-    @Operation(summary = "Esegui una ricerca", description = "Questo endpoint consente di effettuare una ricerca con filtri, ordinamento e ricerca full-text.", parameters = {
+    @Operation(summary = "Esegui una ricerca", description = "Questo endpoint consente di effettuare una ricerca con filtri, ordinamento e ricerca full-text. I campi fields (lista di campi) e view (card, detail) limitano i campi letti e restituiti. Il campo searchMode (text, regex) sceglie tra indice testuale ordinato per rilevanza e regex sui campi. Il campo count (exact, none, capped, estimated) controlla il calcolo del totale, restituito anche nell'header X-Total-Count. Il campo facets (true o lista di campi) aggiunge i conteggi per tipo, tag e comune calcolati nella stessa aggregazione.", parameters = {
             @Parameter(name = "request", description = "Oggetto di ricerca contenente filtri, parametri di ordinamento e termini di ricerca", required = true)
     }, responses = {
             @ApiResponse(responseCode = "200", description = "Ricerca completata con successo e restituita una pagina di risultati"),
             @ApiResponse(responseCode = "400", description = "Errore nella richiesta, come un parametro mancante o errato")
     })
-    public ResponseEntity<Page<DTO>> search(@RequestBody Map<String, Object> request) {
-        int page = (int) request.getOrDefault("page", 0);
-        int limit = (int) request.getOrDefault("limit", 10);
-
-        Map<String, Object> filters = extractMapObject(request.get("filters"));
-        Map<String, String> sortMap = extractMap(request.get("sort"));
-
-        // Lista di criteri (AND)
-        List<Criteria> andCriteria = new ArrayList<>();
-        andCriteria.addAll(getExtraCriteriaForCurrentUser(request));
-
-        // Bounding box: filtra per coordinate se presenti
-        Map<String, Object> bbox = extractMapObject(request.get("bbox"));
-        if (bbox != null) {
-            Double north = getDouble(bbox.get("north"));
-            Double south = getDouble(bbox.get("south"));
-            Double east = getDouble(bbox.get("east"));
-            Double west = getDouble(bbox.get("west"));
-            if (north != null && south != null && east != null && west != null) {
-                andCriteria.add(Criteria.where("latitude").gte(south).lte(north));
-                andCriteria.add(Criteria.where("longitude").gte(west).lte(east));
-            }
-        }
+    public ResponseEntity<Page<DTO>> search(@RequestBody SearchRequest request) throws BadRequestException {
+        int page = request.getPage();
+        int limit = request.getLimitOrDefault(10);
+        String countMode = Optional.ofNullable(request.getCount()).orElse(COUNT_EXACT).toLowerCase();
+        int countCap = Optional.ofNullable(request.getCountCap()).orElse(DEFAULT_COUNT_CAP);
 
-        // Applica filtri normali (e &&)
-        filters.forEach((key, value) -> {
-            if ("municipalityIds".equals(key) || "municipalityId".equals(key))
-                return;
-            if (value == null)
-                return;
+        FieldProjection projection = getFieldProjection(request);
 
-            // Gestione array/lista per type e tags
-            if (value instanceof List<?> listValue) {
-                if (!listValue.isEmpty()) {
-                    // Speciale: se il campo è "tags" usa .in() che su array Mongo vuol dire "almeno
-                    // uno presente"
-                    andCriteria.add(Criteria.where(key).in(listValue));
-                }
-                return;
-            }
+        SearchPlan plan = getSearchPlanner().plan(request);
+        boolean relevanceSort = plan.isTextSearch() && request.getSort().isEmpty();
+        Query query = plan.bind(request, getExtraCriteriaForCurrentUser(request));
+        List<String> facetFields = getRequestedFacets(request);
+        if (!facetFields.isEmpty()) {
+            return searchWithFacets(query, plan.getSort(), relevanceSort, PageRequest.of(page, limit), projection,
+                    facetFields);
+        }
+        // Il conteggio usa una query senza skip/limit e gira in parallelo alla find
+        Query countQuery = Query.of(query);
+        projection.applyTo(query);
+        applySort(query, plan.getSort(), relevanceSort);
+        Pageable pageable = PageRequest.of(page, limit);
+        query.with(pageable);
 
-            // Gestione stringa
-            if (value instanceof String strValue && !strValue.isEmpty()) {
-                andCriteria.add(
-                        Criteria.where(key).regex(Pattern.compile(Pattern.quote(strValue), Pattern.CASE_INSENSITIVE)));
-            }
-        });
-
-        // --- Logica search full-text (OR tra i campi, AND con i filtri normali) ---
-        String searchText = (String) request.get("search");
-        List<String> searchFields = getSearchableFields();
-        if (searchText != null && !searchText.isEmpty() && !searchFields.isEmpty()) {
-            List<Criteria> orList = searchFields.stream()
-                    .map(field -> Criteria.where(field)
-                            .regex(Pattern.compile(Pattern.quote(searchText), Pattern.CASE_INSENSITIVE)))
-                    .toList();
-            andCriteria.add(new Criteria().orOperator(orList.toArray(new Criteria[0])));
+        CompletableFuture<Long> count = null;
+        boolean unfiltered = countQuery.getQueryObject().isEmpty();
+        if (COUNT_ESTIMATED.equals(countMode) && unfiltered) {
+            count = CompletableFuture.supplyAsync(() -> mongoTemplate.estimatedCount(getCollectionName()),
+                    COUNT_EXECUTOR);
+        } else if (COUNT_CAPPED.equals(countMode)) {
+            countQuery.limit(countCap + 1);
+            count = CompletableFuture.supplyAsync(
+                    () -> mongoTemplate.count(countQuery, getEntityClass(), getCollectionName()), COUNT_EXECUTOR);
+        } else if (!COUNT_NONE.equals(countMode)) {
+            count = CompletableFuture.supplyAsync(
+                    () -> mongoTemplate.count(countQuery, getEntityClass(), getCollectionName()), COUNT_EXECUTOR);
+        }
+
+        // Senza conteggio, o con un conteggio che può essere troncato, si legge un elemento in più
+        // per sapere se esiste la pagina successiva
+        boolean probeNext = count == null || COUNT_CAPPED.equals(countMode);
+        if (probeNext) {
+            query.limit(limit + 1);
         }
+        queryPlanSampler.sample(query, getEntityClass(), getCollectionName());
+        List<T> result = mongoTemplate.find(query, getEntityClass(), getCollectionName());
+
+        boolean hasNext = probeNext && result.size() > limit;
+        result = hasNext ? result.subList(0, limit) : result;
+        // Totale minimo coerente con la pagina: fa risultare last/totalPages corretti senza un conteggio esatto
+        long knownTotal = pageable.getOffset() + result.size() + (hasNext ? 1 : 0);
 
-        Criteria criteria;
-        if (andCriteria.isEmpty()) {
-            criteria = new Criteria();
-        } else if (andCriteria.size() == 1) {
-            criteria = andCriteria.get(0);
+        long total;
+        String totalHeader = null;
+        if (count == null) {
+            total = knownTotal;
         } else {
-            criteria = new Criteria().andOperator(andCriteria.toArray(new Criteria[0]));
+            total = count.join();
+            totalHeader = String.valueOf(total);
+            if (COUNT_CAPPED.equals(countMode) && total > countCap) {
+                total = knownTotal;
+                totalHeader = countCap + "+";
+            }
         }
+        List<DTO> dtoList = result.stream().map(toDtoMapper()).toList();
+        projection.bindToResponse();
+        recordResultSize("search", dtoList.size());
 
-        Query query = new Query(criteria);
+        Page<DTO> pageResult = new PageImpl<>(dtoList, pageable, total);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (totalHeader != null) {
+            response.header(TOTAL_COUNT_HEADER, totalHeader);
+        }
+        return response.body(pageResult);
+    }
 
-        Sort sort = buildSort(sortMap);
-        if (sort != null) {
-            query.with(sort);
+    // La pagina è una find normale, che usa gli indici per ordinamento e limit; totale e conteggi per
+    // faccetta arrivano da un'unica aggregazione $facet sullo stesso filtro, eseguita in parallelo
+    private ResponseEntity<Page<DTO>> searchWithFacets(Query query, Sort sort, boolean relevanceSort,
+            Pageable pageable, FieldProjection projection, List<String> facetFields) {
+        FacetOperation facet = Aggregation.facet(Aggregation.count().as("count")).as("total");
+        for (String field : facetFields) {
+            // $unwind tratta i campi scalari come array di un elemento e scarta quelli mancanti
+            facet = facet.and(Aggregation.unwind(field), Aggregation.sortByCount(field),
+                    Aggregation.limit(MAX_FACET_BUCKETS)).as(field);
         }
-        Pageable pageable = PageRequest.of(page, limit);
+        Document filter = query.getQueryObject();
+        TypedAggregation<T> aggregation = Aggregation.newAggregation(getEntityClass(),
+                context -> new Document("$match", context.getMappedObject(filter, getEntityClass())),
+                facet);
+        CompletableFuture<Document> facetOutput = CompletableFuture.supplyAsync(
+                () -> mongoTemplate.aggregate(aggregation, getCollectionName(), Document.class)
+                        .getUniqueMappedResult(),
+                COUNT_EXECUTOR);
+
+        projection.applyTo(query);
+        applySort(query, sort, relevanceSort);
         query.with(pageable);
+        queryPlanSampler.sample(query, getEntityClass(), getCollectionName());
+        List<DTO> dtoList = mongoTemplate.find(query, getEntityClass(), getCollectionName()).stream()
+                .map(toDtoMapper())
+                .toList();
 
-        long total = mongoTemplate.count(query, getEntityClass(), getCollectionName());
-        List<T> result = mongoTemplate.find(query, getEntityClass(), getCollectionName());
-        List<DTO> dtoList = result.stream().map(toDtoMapper()).toList();
+        Document output = facetOutput.join();
+        List<Document> totals = output.getList("total", Document.class);
+        long total = totals.isEmpty() ? 0 : totals.get(0).get("count", Number.class).longValue();
+        Map<String, List<FacetBucketDTO>> facets = new LinkedHashMap<>();
+        for (String field : facetFields) {
+            facets.put(field, output.getList(field, Document.class).stream()
+                    .filter(bucket -> bucket.get("_id") != null)
+                    .map(bucket -> new FacetBucketDTO(String.valueOf(bucket.get("_id")),
+                            bucket.get("count", Number.class).longValue()))
+                    .toList());
+        }
 
-        Page<DTO> pageResult = new PageImpl<>(dtoList, pageable, total);
-        return ResponseEntity.ok(pageResult);
+        projection.bindToResponse();
+        recordResultSize("facets", dtoList.size());
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(total))
+                .body(new FacetPageDTO<>(dtoList, pageable, total, facets));
+    }
+
+    // Elementi restituiti per pagina, per collection e variante di ricerca
+    private void recordResultSize(String endpoint, int size) {
+        resultSizes.computeIfAbsent(endpoint, key -> DistributionSummary.builder("taf.search.results")
+                .description("Risultati restituiti per pagina di ricerca")
+                .tags("collection", getCollectionName(), "endpoint", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(size);
     }
 
-    private Map<String, String> extractMap(Object obj) {
-        if (obj instanceof Map<?, ?> map) {
-            return map.entrySet().stream()
-                    .filter(e -> e.getKey() instanceof String && e.getValue() instanceof String)
-                    .collect(Collectors.toMap(
-                            e -> (String) e.getKey(),
-                            e -> (String) e.getValue()));
+    // "facets": true per tutte le faccette previste, oppure la lista dei campi desiderati
+    private List<String> getRequestedFacets(SearchRequest request) throws BadRequestException {
+        Object facets = request.getFacets();
+        if (Boolean.TRUE.equals(facets)) {
+            return getFacetFields();
         }
-        return Map.of();
+        if (!(facets instanceof List<?> list)) {
+            return List.of();
+        }
+        List<String> fields = list.stream().map(String::valueOf).distinct().toList();
+        for (String field : fields) {
+            if (!getFacetFields().contains(field)) {
+                throw new BadRequestException(
+                        "Faccetta non valida: " + field + ". Valori ammessi: " + getFacetFields());
+            }
+        }
+        return fields;
     }
 
-    // Per estrarre Map<String, Object> in modo sicuro
-    private Map<String, Object> extractMapObject(Object obj) {
-        if (obj instanceof Map<?, ?> map) {
-            return map.entrySet().stream()
-                    .filter(e -> e.getKey() instanceof String)
-                    .collect(Collectors.toMap(
-                            e -> (String) e.getKey(),
-                            Map.Entry::getValue));
+    @PostMapping("/search/cursor")
+    @Operation(summary = "Esegui una ricerca con paginazione a cursore", description = "Accetta gli stessi filtri e le stesse proiezioni di /search; al posto di page riceve il cursore restituito dalla pagina precedente, così anche le pagine profonde non richiedono skip.", parameters = {
+            @Parameter(name = "request", description = "Oggetto di ricerca con filtri, ordinamento, limit e cursore opzionale", required = true)
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Pagina di risultati restituita con il cursore per la successiva"),
+            @ApiResponse(responseCode = "400", description = "Cursore non valido o non coerente con l'ordinamento")
+    })
+    public ResponseEntity<CursorPageDTO<DTO>> searchByCursor(@RequestBody SearchRequest request)
+            throws BadRequestException {
+        int limit = request.getLimitOrDefault(10);
+        String cursor = request.getCursor();
+        FieldProjection projection = getFieldProjection(request);
+        SearchPlan plan = getSearchPlanner().plan(request);
+
+        // _id come ultimo campo rende l'ordinamento totale e il cursore univoco
+        Sort sort = plan.getSort();
+        if (sort == null) {
+            sort = Sort.by(Sort.Order.asc("_id"));
+        } else if (sort.getOrderFor("_id") == null) {
+            sort = sort.and(Sort.by(Sort.Order.asc("_id")));
         }
-        return null;
+
+        List<Criteria> criteria = new ArrayList<>(getExtraCriteriaForCurrentUser(request));
+        if (cursor != null && !cursor.isEmpty()) {
+            List<Object> lastValues = SearchCursor.decode(cursor, sort);
+            criteria.add(SearchCursor.after(sort, lastValues));
+        }
+
+        // Il punteggio testuale non è un campo del documento: con il cursore l'ordinamento resta quello richiesto
+        Query query = plan.bind(request, criteria).with(sort).limit(limit + 1);
+        // Il cursore si costruisce dai campi di ordinamento, che vanno letti anche se non richiesti
+        projection.applyTo(query, sort.stream().map(Sort.Order::getProperty).toList());
+        queryPlanSampler.sample(query, getEntityClass(), getCollectionName());
+        List<T> result = mongoTemplate.find(query, getEntityClass(), getCollectionName());
+
+        boolean hasNext = result.size() > limit;
+        List<T> pageItems = hasNext ? result.subList(0, limit) : result;
+        String nextCursor = null;
+        if (hasNext) {
+            Document last = new Document();
+            mongoTemplate.getConverter().write(pageItems.get(pageItems.size() - 1), last);
+            nextCursor = SearchCursor.encode(sort, last);
+        }
+
+        List<DTO> dtoList = pageItems.stream().map(toDtoMapper()).toList();
+        projection.bindToResponse();
+        recordResultSize("cursor", dtoList.size());
+        return ResponseEntity.ok(new CursorPageDTO<>(dtoList, nextCursor, hasNext, limit));
     }
 
-    // Per gestire Double/null robustamente
-    private Double getDouble(Object obj) {
-        if (obj instanceof Number n)
-            return n.doubleValue();
-        if (obj instanceof String s) {
-            try {
-                return Double.parseDouble(s);
-            } catch (Exception ignore) {
+    @PostMapping("/search/export")
+    @Operation(summary = "Esporta i risultati di una ricerca", description = "Accetta gli stessi filtri, ordinamento e proiezioni di /search e restituisce tutti i risultati in streaming, senza paginazione. Il campo format sceglie ndjson (default, un oggetto JSON per riga) o csv; limit è facoltativo.", parameters = {
+            @Parameter(name = "request", description = "Oggetto di ricerca con filtri, ordinamento, format e limit opzionale", required = true)
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Risultati scritti in streaming nel formato richiesto"),
+            @ApiResponse(responseCode = "400", description = "Formato, campo o vista non validi")
+    })
+    public ResponseEntity<StreamingResponseBody> export(@RequestBody SearchRequest request)
+            throws BadRequestException {
+        ExportFormat format = getExportFormat(request);
+        FieldProjection projection = getFieldProjection(request);
+        List<String> columns = getExportColumns(projection);
+        if (format == ExportFormat.CSV && columns.isEmpty()) {
+            throw new BadRequestException("Esportazione CSV non disponibile per questa risorsa.");
+        }
+
+        SearchPlan plan = getSearchPlanner().plan(request);
+        Query query = plan.bind(request, getExtraCriteriaForCurrentUser(request));
+        applySort(query, plan.getSort(), plan.isTextSearch() && request.getSort().isEmpty());
+        if (request.getLimit() != null && request.getLimit() > 0) {
+            query.limit(request.getLimit());
+        }
+        projection.applyTo(query);
+        query.cursorBatchSize(EXPORT_BATCH_SIZE);
+
+        // Il cursore avanza solo quando la riga precedente è stata scritta: se il client legge
+        // lentamente la scrittura sul socket si blocca e Mongo non viene interrogato oltre
+        StreamingResponseBody body = out -> {
+            Function<T, DTO> mapper = toDtoMapper();
+            try (Stream<T> stream = mongoTemplate.stream(query, getEntityClass(), getCollectionName());
+                    ExportWriter writer = ExportWriter.open(format, out, objectMapper, projection, columns)) {
+                Iterator<T> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(mapper.apply(iterator.next()));
+                }
             }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + getCollectionName() + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    private ExportFormat getExportFormat(SearchRequest request) throws BadRequestException {
+        String format = request.getFormat();
+        if (format == null) {
+            return ExportFormat.NDJSON;
+        }
+        try {
+            return ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Formato di esportazione non valido: " + format);
+        }
+    }
+
+    // Colonne CSV: i campi proiettati oppure tutti quelli della vista "detail"
+    private List<String> getExportColumns(FieldProjection projection) {
+        if (!projection.isAll()) {
+            return List.copyOf(projection.getFields());
+        }
+        List<String> detail = getViews().get(FieldProjection.VIEW_DETAIL);
+        if (detail == null) {
+            return List.of();
+        }
+        List<String> columns = new ArrayList<>();
+        columns.add("id");
+        columns.addAll(detail);
+        return columns;
+    }
+
+    // Piano di ricerca per la forma della richiesta; il planner si crea al primo uso con gli hook della sottoclasse
+    protected SearchPlanner getSearchPlanner() {
+        SearchPlanner planner = searchPlanner;
+        if (planner == null) {
+            planner = new SearchPlanner(getSearchableFields(), hasTextIndex(), getGeoLocationField(),
+                    getFilterModes(), this::buildSort, SearchPlanner.DEFAULT_MAX_PLANS);
+            searchPlanner = planner;
+        }
+        return planner;
+    }
+
+    // Senza ordinamento esplicito i risultati testuali seguono la rilevanza
+    private void applySort(Query query, Sort sort, boolean relevanceSort) {
+        if (relevanceSort && query instanceof TextQuery textQuery) {
+            textQuery.sortByScore();
+        } else if (sort != null) {
+            query.with(sort);
         }
-        return null;
     }
 
     protected Sort buildSort(Map<String, String> sortMap) {
@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -38,15 +37,17 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import it.overzoom.taf.dto.EnumDTO;
 import it.overzoom.taf.dto.EventDTO;
+import it.overzoom.taf.dto.EventRegistrationDTO;
+import it.overzoom.taf.dto.SearchRequest;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.mapper.EventMapper;
+import it.overzoom.taf.mapper.EventRegistrationMapper;
 import it.overzoom.taf.model.Event;
-import it.overzoom.taf.model.Municipal;
-import it.overzoom.taf.model.User;
+import it.overzoom.taf.model.EventRegistration;
 import it.overzoom.taf.service.EventService;
-import it.overzoom.taf.service.MunicipalService;
-import it.overzoom.taf.service.UserService;
 import it.overzoom.taf.type.EventType;
+import it.overzoom.taf.type.FilterMode;
+import it.overzoom.taf.utils.FieldProjection;
 import it.overzoom.taf.utils.SecurityUtils;
 import jakarta.validation.Valid;
 
@@ -55,17 +56,22 @@ import jakarta.validation.Valid;
 public class EventController extends BaseSearchController<Event, EventDTO> {
 
         private static final Logger log = LoggerFactory.getLogger(EventController.class);
+        private static final Map<String, List<String>> VIEWS = Map.of(
+                        "card", List.of("title", "type", "startDateTime", "endDateTime", "location", "cover",
+                                "municipalityId", "isCancelled"),
+                        "detail", List.of("version", "title", "description", "type", "startDateTime",
+                                "endDateTime", "location", "cover", "photos", "organizer", "contactEmail",
+                                "contactPhone", "tags", "municipalityId", "activityId", "maxParticipants",
+                                "currentParticipants", "isPublic", "isCancelled", "url"));
         private final EventService eventService;
-        private final MunicipalService municipalService;
         private final EventMapper eventMapper;
-        private final UserService userService;
+        private final EventRegistrationMapper eventRegistrationMapper;
 
-        public EventController(EventService eventService, MunicipalService municipalService, EventMapper eventMapper,
-                        UserService userService) {
+        public EventController(EventService eventService, EventMapper eventMapper,
+                        EventRegistrationMapper eventRegistrationMapper) {
                 this.eventService = eventService;
-                this.municipalService = municipalService;
                 this.eventMapper = eventMapper;
-                this.userService = userService;
+                this.eventRegistrationMapper = eventRegistrationMapper;
         }
 
         @Override
@@ -83,6 +89,11 @@ public class EventController extends BaseSearchController<Event, EventDTO> {
                 return eventMapper::toDto;
         }
 
+        @Override
+        protected boolean hasTextIndex() {
+                return true;
+        }
+
         @Override
         protected List<String> getSearchableFields() {
                 return List.of(
@@ -90,6 +101,24 @@ public class EventController extends BaseSearchController<Event, EventDTO> {
                                 "municipalityId", "activityId");
         }
 
+        @Override
+        protected Map<String, List<String>> getViews() {
+                return VIEWS;
+        }
+
+        @Override
+        protected List<String> getFacetFields() {
+                return List.of("type", "tags", "municipalityId");
+        }
+
+        @Override
+        protected Map<String, FilterMode> getFilterModes() {
+                return Map.of(
+                                "type", FilterMode.EXACT,
+                                "activityId", FilterMode.EXACT,
+                                "title", FilterMode.PREFIX);
+        }
+
         @Override
         protected Sort buildSort(Map<String, String> sortMap) {
                 if (sortMap == null || sortMap.isEmpty()) {
@@ -99,61 +128,11 @@ public class EventController extends BaseSearchController<Event, EventDTO> {
         }
 
         @Override
-        protected List<Criteria> getExtraCriteriaForCurrentUser(Map<String, Object> request) {
-                List<Criteria> criteriaList = new ArrayList<>();
-
-                try {
-                        if (SecurityUtils.isAdmin()) {
-                                return criteriaList; // Se l'utente è admin, non aggiungiamo filtri
-                        }
-
-                        String userId = SecurityUtils.getCurrentUserId();
-                        User user = userService.findByUserId(userId)
-                                        .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato"));
-                        String[] allowedMunicipalityIds = user.getMunicipalityIds();
-                        if (allowedMunicipalityIds == null || allowedMunicipalityIds.length == 0) {
-                                Municipal defaultMunicipal = municipalService.getDefaultMunicipal()
-                                                .orElseThrow(() -> new ResourceNotFoundException(
-                                                                "Comune predefinito non trovato"));
-                                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-                        }
-
-                        Map<String, Object> filtersObj = (Map<String, Object>) request.get("filters");
-                        List<String> filteredIds = null;
-                        if (filtersObj != null && filtersObj.containsKey("municipalityIds")) {
-                                Object val = filtersObj.get("municipalityIds");
-                                if (val instanceof List<?> list) {
-                                        filteredIds = list.stream()
-                                                        .map(Object::toString)
-                                                        .filter(id -> java.util.Arrays.asList(allowedMunicipalityIds)
-                                                                        .contains(id))
-                                                        .toList();
-                                }
-                        }
-
-                        List<String> actualIds = (filteredIds != null) ? filteredIds : List.of(allowedMunicipalityIds);
-
-                        if (actualIds.isEmpty()) {
-                                Municipal defaultMunicipal = municipalService.getDefaultMunicipal().orElseThrow(
-                                                () -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-                        }
-                        criteriaList.add(Criteria.where("municipalityId").in(actualIds));
-
-                        // Aggiungi il filtro per eventi attivi
-                        boolean includeExpired = request.containsKey("includeExpired")
-                                        && (boolean) request.get("includeExpired");
-                        if (!includeExpired) {
-                                criteriaList.add(Criteria.where("endDateTime").gte(LocalDateTime.now()));
-                        }
-
-                } catch (ResourceNotFoundException ex) {
-                        Municipal defaultMunicipal = municipalService.getDefaultMunicipal().orElse(null);
-                        return List.of(Criteria.where("municipalityId")
-                                        .is(defaultMunicipal != null ? defaultMunicipal.getId() : "__NO_MATCH__"));
-                }
-
-                return criteriaList;
+        protected List<Criteria> getExtraCriteriaForCurrentUser(SearchRequest request) {
+                // Per i non admin si mostrano solo gli eventi attivi, salvo includeExpired
+                List<Criteria> activeEvents = request.getFlag("includeExpired") ? List.of()
+                                : List.of(Criteria.where("endDateTime").gte(LocalDateTime.now()));
+                return getMunicipalityScopeCriteria(request, true, activeEvents);
         }
 
         @GetMapping("/{id}")
@@ -345,15 +324,35 @@ public class EventController extends BaseSearchController<Event, EventDTO> {
                 return new ResponseEntity<>(body, HttpStatus.OK);
         }
 
+        @GetMapping("/{eventId}/participants")
+        @Operation(summary = "Recupera i partecipanti di un evento", description = "Restituisce una lista paginata delle iscrizioni all'evento, con stato e orario di check-in.", parameters = {
+                        @Parameter(name = "eventId", description = "ID dell'evento", required = true)
+        }, responses = {
+                        @ApiResponse(responseCode = "200", description = "Lista dei partecipanti restituita"),
+                        @ApiResponse(responseCode = "404", description = "Evento non trovato")
+        })
+        public ResponseEntity<Page<EventRegistrationDTO>> getParticipants(@PathVariable("eventId") String eventId,
+                        Pageable pageable) throws ResourceNotFoundException {
+                Page<EventRegistration> participants = eventService.getParticipants(eventId, pageable);
+                return ResponseEntity.ok(participants.map(eventRegistrationMapper::toDto));
+        }
+
         @GetMapping("/user/{userId}")
         @Operation(summary = "Recupera gli eventi a cui un utente è registrato", description = "Restituisce una lista paginata di eventi a cui un utente (identificato da userId) è registrato.", parameters = {
-                        @Parameter(name = "userId", description = "ID dell'utente per cui recuperare gli eventi", required = true)
+                        @Parameter(name = "userId", description = "ID dell'utente per cui recuperare gli eventi", required = true),
+                        @Parameter(name = "fields", description = "Campi da restituire, separati da virgola"),
+                        @Parameter(name = "view", description = "Vista predefinita (card, detail)")
         }, responses = {
                         @ApiResponse(responseCode = "200", description = "Lista di eventi dell'utente trovata e restituita"),
-                        @ApiResponse(responseCode = "204", description = "Nessun evento trovato per l'utente")
+                        @ApiResponse(responseCode = "204", description = "Nessun evento trovato per l'utente"),
+                        @ApiResponse(responseCode = "400", description = "Campo o vista non validi")
         })
-        public ResponseEntity<Page<EventDTO>> getUserEvents(@PathVariable("userId") String userId, Pageable pageable) {
-                Page<Event> userEvents = eventService.getEventsByUserId(userId, pageable);
+        public ResponseEntity<Page<EventDTO>> getUserEvents(@PathVariable("userId") String userId, Pageable pageable,
+                        @RequestParam(required = false) List<String> fields,
+                        @RequestParam(required = false) String view) throws BadRequestException {
+                FieldProjection projection = FieldProjection.resolve(fields, view, getViews());
+                Page<Event> userEvents = eventService.getEventsByUserId(userId, pageable, projection);
+                projection.bindToResponse();
                 return ResponseEntity.ok(userEvents.map(eventMapper::toDto));
         }
 
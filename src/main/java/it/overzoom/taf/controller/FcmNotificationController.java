@@ -1,14 +1,25 @@
 package it.overzoom.taf.controller;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import it.overzoom.taf.dto.FcmCredentialStatsDTO;
+import it.overzoom.taf.dto.PushFanoutStatsDTO;
+import it.overzoom.taf.dto.PushJobStatusDTO;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.User;
+import it.overzoom.taf.service.FcmCredentialProvider;
+import it.overzoom.taf.service.PushFanoutService;
 import it.overzoom.taf.service.UserService;
 import it.overzoom.taf.utils.SecurityUtils;
 
@@ -17,9 +28,14 @@ import it.overzoom.taf.utils.SecurityUtils;
 public class FcmNotificationController {
 
     private final UserService userService;
+    private final PushFanoutService pushFanoutService;
+    private final FcmCredentialProvider credentialProvider;
 
-    public FcmNotificationController(UserService userService) {
+    public FcmNotificationController(UserService userService, PushFanoutService pushFanoutService,
+            FcmCredentialProvider credentialProvider) {
         this.userService = userService;
+        this.pushFanoutService = pushFanoutService;
+        this.credentialProvider = credentialProvider;
     }
 
     private static class RegisterTokenRequest {
@@ -44,4 +60,44 @@ public class FcmNotificationController {
 
         return ResponseEntity.ok().build();
     }
+
+    @GetMapping("/fanout/stats")
+    @Operation(summary = "Statistiche del motore di fan-out", description = "Restituisce profondità della coda, job in corso e throughput degli invii push", responses = {
+            @ApiResponse(responseCode = "200", description = "Statistiche restituite"),
+            @ApiResponse(responseCode = "403", description = "Riservato agli amministratori")
+    })
+    public ResponseEntity<PushFanoutStatsDTO> getFanoutStats() {
+        if (!SecurityUtils.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(pushFanoutService.getStats());
+    }
+
+    @GetMapping("/fanout/jobs/{jobId}")
+    @Operation(summary = "Stato di un job di fan-out", description = "Restituisce lo stato di completamento di un job di invio push", parameters = @Parameter(name = "jobId", description = "ID del job", required = true), responses = {
+            @ApiResponse(responseCode = "200", description = "Stato del job restituito"),
+            @ApiResponse(responseCode = "403", description = "Riservato agli amministratori"),
+            @ApiResponse(responseCode = "404", description = "Job non trovato o non più tracciato")
+    })
+    public ResponseEntity<PushJobStatusDTO> getFanoutJob(@PathVariable("jobId") String jobId)
+            throws ResourceNotFoundException {
+        if (!SecurityUtils.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return pushFanoutService.getJobStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Job di invio non trovato."));
+    }
+
+    @GetMapping("/credentials/stats")
+    @Operation(summary = "Statistiche delle credenziali FCM", description = "Restituisce scadenza dell'access token in cache, durata e fallimenti dei rinnovi", responses = {
+            @ApiResponse(responseCode = "200", description = "Statistiche restituite"),
+            @ApiResponse(responseCode = "403", description = "Riservato agli amministratori")
+    })
+    public ResponseEntity<FcmCredentialStatsDTO> getCredentialStats() {
+        if (!SecurityUtils.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(credentialProvider.getStats());
+    }
 }
@@ -0,0 +1,51 @@
+package it.overzoom.taf.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import it.overzoom.taf.dto.MongoLatencyDTO;
+import it.overzoom.taf.dto.SlowQueryDTO;
+import it.overzoom.taf.service.MongoCommandMonitor;
+import it.overzoom.taf.utils.SecurityUtils;
+
+@RestController
+@RequestMapping("/api/admin/mongo")
+public class MongoMonitoringController {
+
+    private final MongoCommandMonitor mongoCommandMonitor;
+
+    public MongoMonitoringController(MongoCommandMonitor mongoCommandMonitor) {
+        this.mongoCommandMonitor = mongoCommandMonitor;
+    }
+
+    @GetMapping("/latency")
+    @Operation(summary = "Latenze dei comandi Mongo", description = "Restituisce conteggi, percentili e istogramma delle latenze per collection e operazione", responses = {
+            @ApiResponse(responseCode = "200", description = "Latenze restituite"),
+            @ApiResponse(responseCode = "403", description = "Riservato agli amministratori")
+    })
+    public ResponseEntity<List<MongoLatencyDTO>> getLatencies() {
+        if (!SecurityUtils.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(mongoCommandMonitor.getLatencies());
+    }
+
+    @GetMapping("/slow-queries")
+    @Operation(summary = "Query Mongo lente", description = "Restituisce le forme di query più lente oltre la soglia configurata, con il piano di esecuzione catturato", responses = {
+            @ApiResponse(responseCode = "200", description = "Query lente restituite"),
+            @ApiResponse(responseCode = "403", description = "Riservato agli amministratori")
+    })
+    public ResponseEntity<List<SlowQueryDTO>> getSlowQueries() {
+        if (!SecurityUtils.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(mongoCommandMonitor.getSlowQueries());
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import org.apache.coyote.BadRequestException;
@@ -27,12 +28,15 @@ import org.springframework.web.multipart.MultipartFile;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import it.overzoom.taf.dto.MunicipalBoundaryDTO;
 import it.overzoom.taf.dto.MunicipalDTO;
+import it.overzoom.taf.exception.InvalidBoundaryException;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.mapper.MunicipalMapper;
 import it.overzoom.taf.model.Municipal;
 import it.overzoom.taf.service.MunicipalService;
 import it.overzoom.taf.service.UserService;
+import it.overzoom.taf.utils.FieldProjection;
 import jakarta.validation.Valid;
 
 @RestController
@@ -40,6 +44,10 @@ import jakarta.validation.Valid;
 public class MunicipalController extends BaseSearchController<Municipal, MunicipalDTO> {
 
     private static final Logger log = LoggerFactory.getLogger(MunicipalController.class);
+    private static final Map<String, List<String>> VIEWS = Map.of(
+            "card", List.of("city", "province", "domain", "logo", "icon"),
+            "detail", List.of("version", "city", "province", "region", "domain", "description", "cover",
+                    "logo", "icon"));
     private final MunicipalService municipalService;
     private final MunicipalMapper municipalMapper;
     private final UserService userService;
@@ -71,14 +79,27 @@ public class MunicipalController extends BaseSearchController<Municipal, Municip
         return List.of("city", "province", "region", "domain");
     }
 
+    @Override
+    protected Map<String, List<String>> getViews() {
+        return VIEWS;
+    }
+
     @GetMapping("")
-    @Operation(summary = "Recupera una lista di comuni", description = "Restituisce una lista paginata di tutti i comuni", responses = {
+    @Operation(summary = "Recupera una lista di comuni", description = "Restituisce una lista paginata di tutti i comuni", parameters = {
+            @Parameter(name = "fields", description = "Campi da restituire, separati da virgola"),
+            @Parameter(name = "view", description = "Vista predefinita (card, detail)")
+    }, responses = {
             @ApiResponse(responseCode = "200", description = "Lista di comuni trovata e restituita"),
-            @ApiResponse(responseCode = "204", description = "Nessun comune trovato")
+            @ApiResponse(responseCode = "204", description = "Nessun comune trovato"),
+            @ApiResponse(responseCode = "400", description = "Campo o vista non validi")
     })
-    public ResponseEntity<Page<MunicipalDTO>> findAll(Pageable pageable) {
+    public ResponseEntity<Page<MunicipalDTO>> findAll(Pageable pageable,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String view) throws BadRequestException {
         log.info("REST request to get a page of Municipals");
-        Page<Municipal> page = municipalService.findAll(pageable);
+        FieldProjection projection = FieldProjection.resolve(fields, view, getViews());
+        Page<Municipal> page = municipalService.findAll(pageable, projection);
+        projection.bindToResponse();
         return ResponseEntity.ok().body(page.map(municipalMapper::toDto));
     }
 
@@ -170,6 +191,21 @@ public class MunicipalController extends BaseSearchController<Municipal, Municip
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/{id}/boundary")
+    @Operation(summary = "Aggiorna il confine del comune", description = "Imposta il confine del comune come MultiPolygon GeoJSON, usato per risolvere la geolocalizzazione", parameters = {
+            @Parameter(name = "id", description = "ID del comune", required = true)
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Confine aggiornato con successo"),
+            @ApiResponse(responseCode = "400", description = "Coordinate del confine non valide"),
+            @ApiResponse(responseCode = "404", description = "Comune non trovato con l'ID fornito")
+    })
+    public ResponseEntity<MunicipalDTO> updateBoundary(@PathVariable("id") String id,
+            @Valid @RequestBody MunicipalBoundaryDTO boundaryDTO)
+            throws ResourceNotFoundException, InvalidBoundaryException {
+        Municipal municipal = municipalService.updateBoundary(id, boundaryDTO.getCoordinates());
+        return ResponseEntity.ok(municipalMapper.toDto(municipal));
+    }
+
     @PostMapping("/{id}/upload-logo")
     @Operation(summary = "Carica il logo del comune", description = "Carica un logo per il comune specificato tramite ID", parameters = {
             @Parameter(name = "id", description = "ID del comune a cui associare il logo", required = true),
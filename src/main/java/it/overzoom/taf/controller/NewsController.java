@@ -29,15 +29,12 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import it.overzoom.taf.dto.NewsDTO;
+import it.overzoom.taf.dto.SearchRequest;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.mapper.NewsMapper;
-import it.overzoom.taf.model.Municipal;
 import it.overzoom.taf.model.News;
-import it.overzoom.taf.model.User;
-import it.overzoom.taf.service.MunicipalService;
 import it.overzoom.taf.service.NewsService;
-import it.overzoom.taf.service.UserService;
-import it.overzoom.taf.utils.SecurityUtils;
+import it.overzoom.taf.type.FilterMode;
 import jakarta.validation.Valid;
 
 @RestController
@@ -45,17 +42,16 @@ import jakarta.validation.Valid;
 public class NewsController extends BaseSearchController<News, NewsDTO> {
 
     private static final Logger log = LoggerFactory.getLogger(NewsController.class);
+    private static final Map<String, List<String>> VIEWS = Map.of(
+            "card", List.of("title", "author", "publicationDate", "cover", "tags", "municipalityId"),
+            "detail", List.of("version", "title", "content", "author", "publicationDate", "tags", "cover",
+                    "photos", "municipalityId"));
     private final NewsService newsService;
-    private final MunicipalService municipalService;
     private final NewsMapper newsMapper;
-    private final UserService userService;
 
-    public NewsController(NewsService newsService, MunicipalService municipalService, NewsMapper newsMapper,
-            UserService userService) {
+    public NewsController(NewsService newsService, NewsMapper newsMapper) {
         this.newsService = newsService;
-        this.municipalService = municipalService;
         this.newsMapper = newsMapper;
-        this.userService = userService;
     }
 
     @Override
@@ -73,11 +69,31 @@ public class NewsController extends BaseSearchController<News, NewsDTO> {
         return newsMapper::toDto;
     }
 
+    @Override
+    protected boolean hasTextIndex() {
+        return true;
+    }
+
     @Override
     protected List<String> getSearchableFields() {
         return List.of("title", "content", "author", "tags", "municipalityId");
     }
 
+    @Override
+    protected Map<String, List<String>> getViews() {
+        return VIEWS;
+    }
+
+    @Override
+    protected List<String> getFacetFields() {
+        return List.of("tags", "municipalityId");
+    }
+
+    @Override
+    protected Map<String, FilterMode> getFilterModes() {
+        return Map.of("title", FilterMode.PREFIX);
+    }
+
     @Override
     protected Sort buildSort(Map<String, String> sortMap) {
         if (sortMap == null || sortMap.isEmpty()) {
@@ -87,47 +103,8 @@ public class NewsController extends BaseSearchController<News, NewsDTO> {
     }
 
     @Override
-    protected List<Criteria> getExtraCriteriaForCurrentUser(Map<String, Object> request) {
-        try {
-            if (SecurityUtils.isAdmin())
-                return List.of();
-
-            String userId = SecurityUtils.getCurrentUserId();
-            User user = userService.findByUserId(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato"));
-            String[] allowedMunicipalityIds = user.getMunicipalityIds();
-            if (allowedMunicipalityIds == null || allowedMunicipalityIds.length == 0) {
-                Municipal defaultMunicipal = municipalService.getDefaultMunicipal()
-                        .orElseThrow(() -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-            }
-
-            Map<String, Object> filtersObj = (Map<String, Object>) request.get("filters");
-            List<String> filteredIds = null;
-            if (filtersObj != null && filtersObj.containsKey("municipalityIds")) {
-                Object val = filtersObj.get("municipalityIds");
-                if (val instanceof List<?> list) {
-                    filteredIds = list.stream()
-                            .map(Object::toString)
-                            .filter(id -> java.util.Arrays.asList(allowedMunicipalityIds).contains(id))
-                            .toList();
-                }
-            }
-
-            List<String> actualIds = (filteredIds != null) ? filteredIds : List.of(allowedMunicipalityIds);
-
-            if (actualIds.isEmpty()) {
-                Municipal defaultMunicipal = municipalService.getDefaultMunicipal()
-                        .orElseThrow(() -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-            }
-            return List.of(Criteria.where("municipalityId").in(actualIds));
-        } catch (ResourceNotFoundException ex) {
-            // Utente non autenticato: non restituire nulla per sicurezza
-            Municipal defaultMunicipal = municipalService.getDefaultMunicipal().orElse(null);
-            return List.of(Criteria.where("municipalityId")
-                    .is(defaultMunicipal != null ? defaultMunicipal.getId() : "__NO_MATCH__"));
-        }
+    protected List<Criteria> getExtraCriteriaForCurrentUser(SearchRequest request) {
+        return getMunicipalityScopeCriteria(request, true);
     }
 
     @GetMapping("/{id}")
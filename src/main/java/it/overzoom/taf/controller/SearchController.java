@@ -0,0 +1,76 @@
+package it.overzoom.taf.controller;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import it.overzoom.taf.dto.SuggestionDTO;
+import it.overzoom.taf.dto.TenantScope;
+import it.overzoom.taf.service.SuggestIndex;
+import it.overzoom.taf.service.TenantScopeResolver;
+import it.overzoom.taf.type.SuggestType;
+import it.overzoom.taf.utils.SecurityUtils;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final SuggestIndex suggestIndex;
+    private final TenantScopeResolver tenantScopeResolver;
+
+    public SearchController(SuggestIndex suggestIndex, TenantScopeResolver tenantScopeResolver) {
+        this.suggestIndex = suggestIndex;
+        this.tenantScopeResolver = tenantScopeResolver;
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggerimenti di ricerca", description = "Completamento mentre si digita su attività, eventi e notizie dei comuni visibili all'utente. L'ultima parola viene cercata per prefisso.", parameters = {
+            @Parameter(name = "q", description = "Testo digitato", required = true),
+            @Parameter(name = "types", description = "Tipi da includere (ACTIVITY, EVENT, NEWS); tutti se assente"),
+            @Parameter(name = "municipalityIds", description = "Comuni in cui cercare, limitati a quelli dell'utente"),
+            @Parameter(name = "limit", description = "Numero massimo di suggerimenti (massimo 50)"),
+    }, responses = {
+            @ApiResponse(responseCode = "200", description = "Suggerimenti ordinati per pertinenza"),
+            @ApiResponse(responseCode = "400", description = "Parametri non validi")
+    })
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) List<SuggestType> types,
+            @RequestParam(required = false) List<String> municipalityIds,
+            @RequestParam(defaultValue = "10") int limit) throws BadRequestException {
+        if (limit <= 0) {
+            throw new BadRequestException("limit deve essere positivo.");
+        }
+        Set<SuggestType> typeSet = types == null || types.isEmpty() ? null : EnumSet.copyOf(types);
+        return ResponseEntity.ok(suggestIndex.suggest(q, resolveMunicipalityIds(municipalityIds), typeSet,
+                Math.min(limit, MAX_LIMIT)));
+    }
+
+    // Stesse regole di visibilità della ricerca: l'admin vede tutto, gli altri i propri comuni o quello di default
+    private List<String> resolveMunicipalityIds(List<String> requested) {
+        if (SecurityUtils.isAdmin()) {
+            return requested == null || requested.isEmpty() ? null : requested;
+        }
+        List<String> allowed = SecurityUtils.getCurrentUserIdOpt().flatMap(tenantScopeResolver::resolve)
+                .map(TenantScope::getMunicipalityIds)
+                .orElse(List.of());
+        List<String> actual = requested == null || requested.isEmpty() ? allowed
+                : requested.stream().filter(allowed::contains).toList();
+        if (actual.isEmpty()) {
+            return tenantScopeResolver.getDefaultMunicipalityId().map(List::of).orElse(List.of());
+        }
+        return actual;
+    }
+}
@@ -26,14 +26,12 @@ import org.springframework.web.multipart.MultipartFile;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import it.overzoom.taf.dto.SearchRequest;
 import it.overzoom.taf.dto.UserDTO;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.mapper.UserMapper;
-import it.overzoom.taf.model.Municipal;
 import it.overzoom.taf.model.User;
-import it.overzoom.taf.service.MunicipalService;
 import it.overzoom.taf.service.UserService;
-import it.overzoom.taf.utils.SecurityUtils;
 import jakarta.validation.Valid;
 
 @RestController
@@ -41,13 +39,15 @@ import jakarta.validation.Valid;
 public class UserController extends BaseSearchController<User, UserDTO> {
 
     private static final Logger log = LoggerFactory.getLogger(UserController.class);
+    private static final Map<String, List<String>> VIEWS = Map.of(
+            "card", List.of("userId", "name", "surname", "photo"),
+            "detail", List.of("version", "userId", "name", "surname", "birthDate", "photo", "roles",
+                    "municipalityIds", "notificationTypes"));
     private final UserService userService;
-    private final MunicipalService municipalService;
     private final UserMapper userMapper;
 
-    public UserController(UserService userService, MunicipalService municipalService, UserMapper userMapper) {
+    public UserController(UserService userService, UserMapper userMapper) {
         this.userService = userService;
-        this.municipalService = municipalService;
         this.userMapper = userMapper;
     }
 
@@ -72,45 +72,14 @@ public class UserController extends BaseSearchController<User, UserDTO> {
     }
 
     @Override
-    protected List<Criteria> getExtraCriteriaForCurrentUser(Map<String, Object> request) {
-        try {
-            if (SecurityUtils.isAdmin())
-                return List.of();
-
-            String userId = SecurityUtils.getCurrentUserId();
-            User user = userService.findByUserId(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato"));
-            String[] allowedMunicipalityIds = user.getMunicipalityIds();
-            if (allowedMunicipalityIds == null || allowedMunicipalityIds.length == 0) {
-                Municipal defaultMunicipal = municipalService.getDefaultMunicipal()
-                        .orElseThrow(() -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-            }
-
-            Map<String, Object> filtersObj = (Map<String, Object>) request.get("filters");
-            List<String> filteredIds = null;
-            if (filtersObj != null && filtersObj.containsKey("municipalityIds")) {
-                Object val = filtersObj.get("municipalityIds");
-                if (val instanceof List<?> list) {
-                    filteredIds = list.stream()
-                            .map(Object::toString)
-                            .filter(id -> java.util.Arrays.asList(allowedMunicipalityIds).contains(id))
-                            .toList();
-                }
-            }
-
-            List<String> actualIds = (filteredIds != null) ? filteredIds : List.of(allowedMunicipalityIds);
-
-            if (actualIds.isEmpty()) {
-                Municipal defaultMunicipal = municipalService.getDefaultMunicipal()
-                        .orElseThrow(() -> new ResourceNotFoundException("Comune predefinito non trovato"));
-                return List.of(Criteria.where("municipalityId").is(defaultMunicipal.getId()));
-            }
-            return List.of(Criteria.where("municipalityId").in(actualIds));
-        } catch (ResourceNotFoundException ex) {
-            // Utente non autenticato: non restituire nulla per sicurezza
-            return List.of(Criteria.where("municipalityId").is("__NO_MATCH__"));
-        }
+    protected Map<String, List<String>> getViews() {
+        return VIEWS;
+    }
+
+    @Override
+    protected List<Criteria> getExtraCriteriaForCurrentUser(SearchRequest request) {
+        // Utente non autenticato: non restituire nulla per sicurezza
+        return getMunicipalityScopeCriteria(request, false);
     }
 
     @GetMapping("/{id}")
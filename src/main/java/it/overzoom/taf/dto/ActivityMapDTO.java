@@ -0,0 +1,83 @@
+package it.overzoom.taf.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class ActivityMapDTO {
+
+    @Schema(description = "Livello di zoom richiesto", example = "13")
+    private int zoom;
+
+    @Schema(description = "true se la risposta contiene cluster, false se contiene le attività complete", example = "true")
+    private boolean clustered;
+
+    @Schema(description = "Cluster aggregati, valorizzati sotto lo zoom di dettaglio")
+    private List<MapClusterDTO> clusters;
+
+    @Schema(description = "Attività complete, valorizzate dallo zoom di dettaglio in su")
+    private List<ActivityDTO> activities;
+
+    @Schema(description = "true se le attività sono state troncate al numero massimo consentito", example = "false")
+    private boolean truncated;
+
+    public ActivityMapDTO() {
+    }
+
+    public static ActivityMapDTO ofClusters(int zoom, List<MapClusterDTO> clusters) {
+        ActivityMapDTO map = new ActivityMapDTO();
+        map.zoom = zoom;
+        map.clustered = true;
+        map.clusters = clusters;
+        return map;
+    }
+
+    public static ActivityMapDTO ofActivities(int zoom, List<ActivityDTO> activities, boolean truncated) {
+        ActivityMapDTO map = new ActivityMapDTO();
+        map.zoom = zoom;
+        map.clustered = false;
+        map.activities = activities;
+        map.truncated = truncated;
+        return map;
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public void setZoom(int zoom) {
+        this.zoom = zoom;
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    public void setClustered(boolean clustered) {
+        this.clustered = clustered;
+    }
+
+    public List<MapClusterDTO> getClusters() {
+        return clusters;
+    }
+
+    public void setClusters(List<MapClusterDTO> clusters) {
+        this.clusters = clusters;
+    }
+
+    public List<ActivityDTO> getActivities() {
+        return activities;
+    }
+
+    public void setActivities(List<ActivityDTO> activities) {
+        this.activities = activities;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
@@ -1,5 +1,10 @@
 package it.overzoom.taf.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+import it.overzoom.taf.utils.FieldProjection;
+
+@JsonFilter(FieldProjection.FILTER_ID)
 public class BaseDTO implements java.io.Serializable {
 
     private static final long serialVersionUID = 1L;
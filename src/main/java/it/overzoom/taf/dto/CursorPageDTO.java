@@ -0,0 +1,62 @@
+package it.overzoom.taf.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class CursorPageDTO<T> {
+
+    @Schema(description = "Elementi della pagina")
+    private List<T> content;
+
+    @Schema(description = "Cursore da inviare per ottenere la pagina successiva, null se non ci sono altri risultati")
+    private String nextCursor;
+
+    @Schema(description = "Indica se esistono altri risultati", example = "true")
+    private boolean hasNext;
+
+    @Schema(description = "Numero massimo di elementi per pagina", example = "10")
+    private int limit;
+
+    public CursorPageDTO() {
+    }
+
+    public CursorPageDTO(List<T> content, String nextCursor, boolean hasNext, int limit) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+        this.limit = limit;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
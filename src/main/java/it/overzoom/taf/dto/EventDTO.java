@@ -1,10 +1,6 @@
 package it.overzoom.taf.dto;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import it.overzoom.taf.type.EventType;
@@ -72,12 +68,6 @@ public class EventDTO extends BaseDTO {
     @Schema(description = "URL dell'evento", example = "https://www.evento.com")
     private String url;
 
-    @Schema(description = "Lista dei partecipanti all'evento", example = "[\"user1\", \"user2\"]")
-    private List<String> participants = new ArrayList<>();
-
-    @Schema(description = "Orari di check-in dei partecipanti", example = "{\"user1\": \"2025-12-24T20:15:00\"}")
-    private Map<String, LocalDateTime> checkInTimes = new HashMap<>();
-
     public String getTitle() {
         return title;
     }
@@ -229,20 +219,4 @@ public class EventDTO extends BaseDTO {
     public void setUrl(String url) {
         this.url = url;
     }
-
-    public List<String> getParticipants() {
-        return participants;
-    }
-
-    public void setParticipants(List<String> participants) {
-        this.participants = participants;
-    }
-
-    public Map<String, LocalDateTime> getCheckInTimes() {
-        return checkInTimes;
-    }
-
-    public void setCheckInTimes(Map<String, LocalDateTime> checkInTimes) {
-        this.checkInTimes = checkInTimes;
-    }
 }
@@ -0,0 +1,64 @@
+package it.overzoom.taf.dto;
+
+import java.time.LocalDateTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import it.overzoom.taf.type.RegistrationStatus;
+
+public class EventRegistrationDTO extends BaseDTO {
+
+    @Schema(description = "ID dell'evento", example = "6852b4b11170095376c87d96")
+    private String eventId;
+
+    @Schema(description = "ID dell'utente iscritto", example = "6852b4b11170095376c87d97")
+    private String userId;
+
+    @Schema(description = "Stato dell'iscrizione", example = "REGISTERED")
+    private RegistrationStatus status;
+
+    @Schema(description = "Data di iscrizione", example = "2025-12-01T10:00:00")
+    private LocalDateTime registeredAt;
+
+    @Schema(description = "Orario di check-in", example = "2025-12-24T20:15:00")
+    private LocalDateTime checkInTime;
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public RegistrationStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RegistrationStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getRegisteredAt() {
+        return registeredAt;
+    }
+
+    public void setRegisteredAt(LocalDateTime registeredAt) {
+        this.registeredAt = registeredAt;
+    }
+
+    public LocalDateTime getCheckInTime() {
+        return checkInTime;
+    }
+
+    public void setCheckInTime(LocalDateTime checkInTime) {
+        this.checkInTime = checkInTime;
+    }
+}
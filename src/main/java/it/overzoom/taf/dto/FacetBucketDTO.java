@@ -0,0 +1,36 @@
+package it.overzoom.taf.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class FacetBucketDTO {
+
+    @Schema(description = "Valore del campo (tipo, tag o id del comune)", example = "CONCERT")
+    private String value;
+
+    @Schema(description = "Numero di risultati con questo valore", example = "12")
+    private long count;
+
+    public FacetBucketDTO() {
+    }
+
+    public FacetBucketDTO(String value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,31 @@
+package it.overzoom.taf.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Pagina di risultati di /search con i conteggi per faccetta calcolati nella
+ * stessa aggregazione: serializzata come una pagina normale più il campo
+ * "facets".
+ */
+public class FacetPageDTO<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "Conteggi per campo, ordinati per numero di risultati decrescente")
+    private final Map<String, List<FacetBucketDTO>> facets;
+
+    public FacetPageDTO(List<T> content, Pageable pageable, long total, Map<String, List<FacetBucketDTO>> facets) {
+        super(content, pageable, total);
+        this.facets = facets;
+    }
+
+    public Map<String, List<FacetBucketDTO>> getFacets() {
+        return facets;
+    }
+}
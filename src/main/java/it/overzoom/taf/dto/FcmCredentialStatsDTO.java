@@ -0,0 +1,96 @@
+package it.overzoom.taf.dto;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class FcmCredentialStatsDTO {
+
+    @Schema(description = "Scadenza dell'access token in cache")
+    private Instant tokenExpiresAt;
+
+    @Schema(description = "Data dell'ultimo rinnovo riuscito")
+    private Instant lastRefreshAt;
+
+    @Schema(description = "Rinnovi riusciti dall'avvio", example = "24")
+    private long refreshCount;
+
+    @Schema(description = "Rinnovi falliti dall'avvio", example = "0")
+    private long refreshFailures;
+
+    @Schema(description = "Durata dell'ultimo rinnovo in millisecondi", example = "180")
+    private long lastRefreshMillis;
+
+    @Schema(description = "Durata media dei rinnovi in millisecondi", example = "210.5")
+    private double averageRefreshMillis;
+
+    @Schema(description = "Durata massima recente di un rinnovo in millisecondi", example = "640")
+    private long maxRefreshMillis;
+
+    @Schema(description = "Messaggio dell'ultimo errore di rinnovo")
+    private String lastError;
+
+    public Instant getTokenExpiresAt() {
+        return tokenExpiresAt;
+    }
+
+    public void setTokenExpiresAt(Instant tokenExpiresAt) {
+        this.tokenExpiresAt = tokenExpiresAt;
+    }
+
+    public Instant getLastRefreshAt() {
+        return lastRefreshAt;
+    }
+
+    public void setLastRefreshAt(Instant lastRefreshAt) {
+        this.lastRefreshAt = lastRefreshAt;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    public void setRefreshCount(long refreshCount) {
+        this.refreshCount = refreshCount;
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures;
+    }
+
+    public void setRefreshFailures(long refreshFailures) {
+        this.refreshFailures = refreshFailures;
+    }
+
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    public void setLastRefreshMillis(long lastRefreshMillis) {
+        this.lastRefreshMillis = lastRefreshMillis;
+    }
+
+    public double getAverageRefreshMillis() {
+        return averageRefreshMillis;
+    }
+
+    public void setAverageRefreshMillis(double averageRefreshMillis) {
+        this.averageRefreshMillis = averageRefreshMillis;
+    }
+
+    public long getMaxRefreshMillis() {
+        return maxRefreshMillis;
+    }
+
+    public void setMaxRefreshMillis(long maxRefreshMillis) {
+        this.maxRefreshMillis = maxRefreshMillis;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,61 @@
+package it.overzoom.taf.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import it.overzoom.taf.type.FcmSendStatus;
+
+public class FcmSendResult {
+
+    @Schema(description = "Token FCM destinatario")
+    private String token;
+
+    @Schema(description = "Esito dell'invio", example = "SENT")
+    private FcmSendStatus status;
+
+    @Schema(description = "Codice HTTP restituito da FCM (0 se la richiesta non è arrivata)", example = "200")
+    private int httpStatus;
+
+    @Schema(description = "Dettaglio dell'errore restituito da FCM")
+    private String error;
+
+    public FcmSendResult() {
+    }
+
+    public FcmSendResult(String token, FcmSendStatus status, int httpStatus, String error) {
+        this.token = token;
+        this.status = status;
+        this.httpStatus = httpStatus;
+        this.error = error;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public FcmSendStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(FcmSendStatus status) {
+        this.status = status;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public void setHttpStatus(int httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,74 @@
+package it.overzoom.taf.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import it.overzoom.taf.type.ActivityType;
+
+public class MapClusterDTO {
+
+    @Schema(description = "Latitudine del baricentro del cluster", example = "41.2776")
+    private double latitude;
+
+    @Schema(description = "Longitudine del baricentro del cluster", example = "16.4172")
+    private double longitude;
+
+    @Schema(description = "Numero di attività nel cluster", example = "42")
+    private long count;
+
+    @Schema(description = "Tipo di attività più frequente nel cluster", example = "FOOD")
+    private ActivityType dominantType;
+
+    @Schema(description = "ID dell'attività se il cluster ne contiene una sola")
+    private String activityId;
+
+    public MapClusterDTO() {
+    }
+
+    public MapClusterDTO(double latitude, double longitude, long count, ActivityType dominantType,
+            String activityId) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.dominantType = dominantType;
+        this.activityId = activityId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public ActivityType getDominantType() {
+        return dominantType;
+    }
+
+    public void setDominantType(ActivityType dominantType) {
+        this.dominantType = dominantType;
+    }
+
+    public String getActivityId() {
+        return activityId;
+    }
+
+    public void setActivityId(String activityId) {
+        this.activityId = activityId;
+    }
+}
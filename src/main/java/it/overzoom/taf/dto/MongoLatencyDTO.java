@@ -0,0 +1,107 @@
+package it.overzoom.taf.dto;
+
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class MongoLatencyDTO {
+
+    @Schema(description = "Collection interrogata", example = "event")
+    private String collection;
+
+    @Schema(description = "Comando Mongo", example = "find")
+    private String operation;
+
+    @Schema(description = "Comandi eseguiti dall'avvio", example = "15230")
+    private long count;
+
+    @Schema(description = "Latenza media in millisecondi", example = "4.2")
+    private double meanMillis;
+
+    @Schema(description = "Stima del 50° percentile in millisecondi", example = "2")
+    private double p50Millis;
+
+    @Schema(description = "Stima del 95° percentile in millisecondi", example = "25")
+    private double p95Millis;
+
+    @Schema(description = "Stima del 99° percentile in millisecondi", example = "100")
+    private double p99Millis;
+
+    @Schema(description = "Latenza massima in millisecondi", example = "812.4")
+    private double maxMillis;
+
+    @Schema(description = "Comandi per bucket, con chiave il limite superiore in millisecondi")
+    private Map<String, Long> buckets;
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public void setMeanMillis(double meanMillis) {
+        this.meanMillis = meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(double p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public void setP95Millis(double p95Millis) {
+        this.p95Millis = p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(double p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(double maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public Map<String, Long> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(Map<String, Long> buckets) {
+        this.buckets = buckets;
+    }
+}
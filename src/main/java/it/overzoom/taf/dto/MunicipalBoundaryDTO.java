@@ -0,0 +1,21 @@
+package it.overzoom.taf.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+
+public class MunicipalBoundaryDTO {
+
+    @NotEmpty(message = "Il confine deve contenere almeno un poligono")
+    @Schema(description = "Coordinate di un MultiPolygon GeoJSON: poligoni, anelli (il primo esterno, gli altri buchi), punti [longitudine, latitudine]", example = "[[[[16.38, 41.25], [16.45, 41.25], [16.45, 41.30], [16.38, 41.30], [16.38, 41.25]]]]")
+    private List<List<List<List<Double>>>> coordinates;
+
+    public List<List<List<List<Double>>>> getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(List<List<List<List<Double>>>> coordinates) {
+        this.coordinates = coordinates;
+    }
+}
@@ -0,0 +1,116 @@
+package it.overzoom.taf.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class PushFanoutStatsDTO {
+
+    @Schema(description = "Job in attesa nella coda", example = "3")
+    private int queueDepth;
+
+    @Schema(description = "Capacità massima della coda", example = "1000")
+    private int queueCapacity;
+
+    @Schema(description = "Numero di worker attivi", example = "4")
+    private int workers;
+
+    @Schema(description = "Job attualmente in elaborazione", example = "1")
+    private int runningJobs;
+
+    @Schema(description = "Job accodati dall'avvio", example = "120")
+    private long submittedJobs;
+
+    @Schema(description = "Job completati dall'avvio", example = "116")
+    private long completedJobs;
+
+    @Schema(description = "Job rifiutati per coda piena", example = "0")
+    private long rejectedJobs;
+
+    @Schema(description = "Notifiche inviate dall'avvio", example = "45000")
+    private long sentTotal;
+
+    @Schema(description = "Notifiche fallite dall'avvio", example = "230")
+    private long failedTotal;
+
+    @Schema(description = "Notifiche inviate al secondo nell'ultimo minuto", example = "85.5")
+    private double throughputPerSecond;
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getRunningJobs() {
+        return runningJobs;
+    }
+
+    public void setRunningJobs(int runningJobs) {
+        this.runningJobs = runningJobs;
+    }
+
+    public long getSubmittedJobs() {
+        return submittedJobs;
+    }
+
+    public void setSubmittedJobs(long submittedJobs) {
+        this.submittedJobs = submittedJobs;
+    }
+
+    public long getCompletedJobs() {
+        return completedJobs;
+    }
+
+    public void setCompletedJobs(long completedJobs) {
+        this.completedJobs = completedJobs;
+    }
+
+    public long getRejectedJobs() {
+        return rejectedJobs;
+    }
+
+    public void setRejectedJobs(long rejectedJobs) {
+        this.rejectedJobs = rejectedJobs;
+    }
+
+    public long getSentTotal() {
+        return sentTotal;
+    }
+
+    public void setSentTotal(long sentTotal) {
+        this.sentTotal = sentTotal;
+    }
+
+    public long getFailedTotal() {
+        return failedTotal;
+    }
+
+    public void setFailedTotal(long failedTotal) {
+        this.failedTotal = failedTotal;
+    }
+
+    public double getThroughputPerSecond() {
+        return throughputPerSecond;
+    }
+
+    public void setThroughputPerSecond(double throughputPerSecond) {
+        this.throughputPerSecond = throughputPerSecond;
+    }
+}
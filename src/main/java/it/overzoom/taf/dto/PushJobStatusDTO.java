@@ -0,0 +1,120 @@
+package it.overzoom.taf.dto;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import it.overzoom.taf.type.NotificationType;
+import it.overzoom.taf.type.PushJobStatus;
+
+public class PushJobStatusDTO {
+
+    @Schema(description = "ID del job di invio", example = "3f0c6a0e-5b7d-4d8e-9a8e-2f3b1c9d7e10")
+    private String jobId;
+
+    @Schema(description = "Tipo di notifica inviata", example = "NEW_EVENTS")
+    private NotificationType notificationType;
+
+    @Schema(description = "ID del comune destinatario", example = "6852b4b11170095376c87d96")
+    private String municipalityId;
+
+    @Schema(description = "Stato del job", example = "RUNNING")
+    private PushJobStatus status;
+
+    @Schema(description = "Numero di destinatari con token FCM valido", example = "1200")
+    private long recipients;
+
+    @Schema(description = "Notifiche inviate con successo", example = "1180")
+    private long sent;
+
+    @Schema(description = "Notifiche non consegnate", example = "20")
+    private long failed;
+
+    @Schema(description = "Data di accodamento del job")
+    private Instant submittedAt;
+
+    @Schema(description = "Data di inizio elaborazione del job")
+    private Instant startedAt;
+
+    @Schema(description = "Data di completamento del job")
+    private Instant completedAt;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public NotificationType getNotificationType() {
+        return notificationType;
+    }
+
+    public void setNotificationType(NotificationType notificationType) {
+        this.notificationType = notificationType;
+    }
+
+    public String getMunicipalityId() {
+        return municipalityId;
+    }
+
+    public void setMunicipalityId(String municipalityId) {
+        this.municipalityId = municipalityId;
+    }
+
+    public PushJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PushJobStatus status) {
+        this.status = status;
+    }
+
+    public long getRecipients() {
+        return recipients;
+    }
+
+    public void setRecipients(long recipients) {
+        this.recipients = recipients;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public void setSent(long sent) {
+        this.sent = sent;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(Instant submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,267 @@
+package it.overzoom.taf.dto;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Corpo delle richieste di ricerca (/search, /search/cursor, /search/export).
+ * Jackson lo valorizza direttamente dal JSON: i tipi vengono controllati una
+ * volta sola e i campi non previsti restano disponibili tramite
+ * {@link #get(String)} per le opzioni specifiche dei singoli controller.
+ */
+public class SearchRequest {
+
+    @Schema(description = "Numero di pagina, a partire da 0", example = "0")
+    private int page;
+
+    @Schema(description = "Numero di elementi per pagina", example = "10")
+    private Integer limit;
+
+    @Schema(description = "Modalità di conteggio del totale", allowableValues = { "exact", "none", "capped",
+            "estimated" }, example = "exact")
+    private String count;
+
+    @Schema(description = "Soglia del conteggio in modalità capped", example = "1000")
+    private Integer countCap;
+
+    @Schema(description = "Cursore restituito dalla pagina precedente di /search/cursor")
+    private String cursor;
+
+    @Schema(description = "Ordinamento: campo e direzione (asc, desc), nell'ordine di priorità")
+    private LinkedHashMap<String, String> sort;
+
+    @Schema(description = "Filtri per campo: una lista vale come \"almeno uno\", una stringa come uguaglianza, "
+            + "prefisso o \"contiene\" secondo il campo")
+    private LinkedHashMap<String, Object> filters;
+
+    @Schema(description = "Area geografica visibile")
+    private BoundingBox bbox;
+
+    @Schema(description = "Termini di ricerca")
+    private String search;
+
+    @Schema(description = "Modalità di ricerca", allowableValues = { "text", "regex" }, example = "text")
+    private String searchMode;
+
+    @Schema(description = "Campi da restituire: lista o stringa separata da virgole")
+    private Object fields;
+
+    @Schema(description = "Vista predefinita", example = "card")
+    private String view;
+
+    @Schema(description = "true per tutte le faccette previste oppure lista dei campi")
+    private Object facets;
+
+    @Schema(description = "Formato di esportazione", allowableValues = { "ndjson", "csv" }, example = "ndjson")
+    private String format;
+
+    private final Map<String, Object> extra = new HashMap<>();
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public int getLimitOrDefault(int defaultLimit) {
+        return limit != null ? limit : defaultLimit;
+    }
+
+    public String getCount() {
+        return count;
+    }
+
+    public void setCount(String count) {
+        this.count = count;
+    }
+
+    public Integer getCountCap() {
+        return countCap;
+    }
+
+    public void setCountCap(Integer countCap) {
+        this.countCap = countCap;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public Map<String, String> getSort() {
+        return sort != null ? sort : Map.of();
+    }
+
+    public void setSort(LinkedHashMap<String, String> sort) {
+        this.sort = sort;
+    }
+
+    public Map<String, Object> getFilters() {
+        return filters != null ? filters : Map.of();
+    }
+
+    public void setFilters(LinkedHashMap<String, Object> filters) {
+        this.filters = filters;
+    }
+
+    // Comuni richiesti nei filtri, null se il filtro non è presente
+    @JsonIgnore
+    public List<String> getMunicipalityIds() {
+        if (getFilters().get("municipalityIds") instanceof List<?> list) {
+            return list.stream().map(Object::toString).toList();
+        }
+        return null;
+    }
+
+    public BoundingBox getBbox() {
+        return bbox;
+    }
+
+    public void setBbox(BoundingBox bbox) {
+        this.bbox = bbox;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public void setSearch(String search) {
+        this.search = search;
+    }
+
+    public String getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(String searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    public Object getFields() {
+        return fields;
+    }
+
+    public void setFields(Object fields) {
+        this.fields = fields;
+    }
+
+    public String getView() {
+        return view;
+    }
+
+    public void setView(String view) {
+        this.view = view;
+    }
+
+    public Object getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Object facets) {
+        this.facets = facets;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public Object get(String key) {
+        return extra.get(key);
+    }
+
+    public boolean getFlag(String key) {
+        return Boolean.TRUE.equals(extra.get(key));
+    }
+
+    @JsonAnySetter
+    public void set(String key, Object value) {
+        extra.put(key, value);
+    }
+
+    public static class BoundingBox {
+
+        @Schema(description = "Latitudine del bordo nord", example = "41.35")
+        private Double north;
+
+        @Schema(description = "Latitudine del bordo sud", example = "41.25")
+        private Double south;
+
+        @Schema(description = "Longitudine del bordo est", example = "16.45")
+        private Double east;
+
+        @Schema(description = "Longitudine del bordo ovest", example = "16.35")
+        private Double west;
+
+        public BoundingBox() {
+        }
+
+        public BoundingBox(Double north, Double south, Double east, Double west) {
+            this.north = north;
+            this.south = south;
+            this.east = east;
+            this.west = west;
+        }
+
+        // Il filtro si applica solo con tutti e quattro i bordi
+        @JsonIgnore
+        public boolean isComplete() {
+            return north != null && south != null && east != null && west != null;
+        }
+
+        public Double getNorth() {
+            return north;
+        }
+
+        public void setNorth(Double north) {
+            this.north = north;
+        }
+
+        public Double getSouth() {
+            return south;
+        }
+
+        public void setSouth(Double south) {
+            this.south = south;
+        }
+
+        public Double getEast() {
+            return east;
+        }
+
+        public void setEast(Double east) {
+            this.east = east;
+        }
+
+        public Double getWest() {
+            return west;
+        }
+
+        public void setWest(Double west) {
+            this.west = west;
+        }
+    }
+}
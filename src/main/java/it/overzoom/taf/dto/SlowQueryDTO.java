@@ -0,0 +1,109 @@
+package it.overzoom.taf.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class SlowQueryDTO {
+
+    @Schema(description = "Collection interrogata", example = "event")
+    private String collection;
+
+    @Schema(description = "Comando Mongo", example = "find")
+    private String operation;
+
+    @Schema(description = "Forma del comando, con i valori sostituiti da \"?\"")
+    private String shape;
+
+    @Schema(description = "Esecuzioni oltre la soglia", example = "12")
+    private long count;
+
+    @Schema(description = "Durata massima in millisecondi", example = "1250.7")
+    private double maxMillis;
+
+    @Schema(description = "Durata dell'ultima esecuzione lenta in millisecondi", example = "430.2")
+    private double lastMillis;
+
+    @Schema(description = "Istante dell'ultima esecuzione lenta")
+    private Instant lastSeen;
+
+    @Schema(description = "Stadi del piano vincente, es. COLLSCAN o IXSCAN e SORT")
+    private List<String> planStages;
+
+    @Schema(description = "Piano vincente restituito da explain alla prima esecuzione lenta")
+    private Map<String, Object> plan;
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public void setShape(String shape) {
+        this.shape = shape;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(double maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public double getLastMillis() {
+        return lastMillis;
+    }
+
+    public void setLastMillis(double lastMillis) {
+        this.lastMillis = lastMillis;
+    }
+
+    public Instant getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Instant lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    public List<String> getPlanStages() {
+        return planStages;
+    }
+
+    public void setPlanStages(List<String> planStages) {
+        this.planStages = planStages;
+    }
+
+    public Map<String, Object> getPlan() {
+        return plan;
+    }
+
+    public void setPlan(Map<String, Object> plan) {
+        this.plan = plan;
+    }
+}
@@ -0,0 +1,61 @@
+package it.overzoom.taf.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import it.overzoom.taf.type.SuggestType;
+
+public class SuggestionDTO {
+
+    @Schema(description = "Tipo di elemento suggerito", example = "ACTIVITY")
+    private SuggestType type;
+
+    @Schema(description = "ID dell'elemento suggerito")
+    private String id;
+
+    @Schema(description = "Testo da mostrare: nome dell'attività o titolo di evento e notizia", example = "Pizzeria da Mario")
+    private String label;
+
+    @Schema(description = "ID del comune dell'elemento")
+    private String municipalityId;
+
+    public SuggestionDTO() {
+    }
+
+    public SuggestionDTO(SuggestType type, String id, String label, String municipalityId) {
+        this.type = type;
+        this.id = id;
+        this.label = label;
+        this.municipalityId = municipalityId;
+    }
+
+    public SuggestType getType() {
+        return type;
+    }
+
+    public void setType(SuggestType type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public String getMunicipalityId() {
+        return municipalityId;
+    }
+
+    public void setMunicipalityId(String municipalityId) {
+        this.municipalityId = municipalityId;
+    }
+}
@@ -0,0 +1,26 @@
+package it.overzoom.taf.dto;
+
+import java.util.List;
+
+/**
+ * Comuni visibili a un utente, risolti una volta e tenuti in cache da
+ * TenantScopeResolver. Immutabile: viene condiviso tra richieste concorrenti.
+ */
+public final class TenantScope {
+
+    private final String userId;
+    private final List<String> municipalityIds;
+
+    public TenantScope(String userId, List<String> municipalityIds) {
+        this.userId = userId;
+        this.municipalityIds = municipalityIds != null ? List.copyOf(municipalityIds) : List.of();
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public List<String> getMunicipalityIds() {
+        return municipalityIds;
+    }
+}
@@ -61,5 +61,21 @@ public class ApiExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidBoundaryException.class)
+    public ResponseEntity<Object> handleInvalidBoundary(InvalidBoundaryException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.BAD_REQUEST.value());
+        body.put("message", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidBoundingBoxException.class)
+    public ResponseEntity<Object> handleInvalidBoundingBox(InvalidBoundingBoxException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.BAD_REQUEST.value());
+        body.put("message", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
     // Puoi aggiungere altri handler per altre eccezioni custom o generiche
 }
@@ -0,0 +1,7 @@
+package it.overzoom.taf.exception;
+
+public class InvalidBoundaryException extends Exception {
+    public InvalidBoundaryException(String message) {
+        super(message);
+    }
+}
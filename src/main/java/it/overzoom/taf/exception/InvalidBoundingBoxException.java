@@ -0,0 +1,8 @@
+package it.overzoom.taf.exception;
+
+// Unchecked: il rettangolo viene costruito anche dentro i piani di ricerca compilati
+public class InvalidBoundingBoxException extends RuntimeException {
+    public InvalidBoundingBoxException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package it.overzoom.taf.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+
+import it.overzoom.taf.dto.EventRegistrationDTO;
+import it.overzoom.taf.model.EventRegistration;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface EventRegistrationMapper {
+
+    EventRegistrationDTO toDto(EventRegistration entity);
+
+}
@@ -1,18 +1,32 @@
 package it.overzoom.taf.model;
 
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import it.overzoom.taf.type.ActivityTagType;
 import it.overzoom.taf.type.ActivityType;
 
-@Document(collection = "activity")
+@Document(collection = "activity", language = "italian")
+@CompoundIndex(name = "activity_type_idx", def = "{'municipalityId': 1, 'type': 1}")
 public class Activity extends BaseEntity {
 
+    @TextIndexed(weight = 10)
     private String name;
+    // name in minuscolo e senza accenti, per il filtro per prefisso
+    @Indexed
+    private String nameNormalized;
+    @TextIndexed(weight = 3)
     private String address;
     private Double latitude; // optional, for map display
     private Double longitude; // optional, for map display
+    // Derivato da latitude/longitude al salvataggio, per le query geospaziali
+    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint location;
     private String phone;
     private String[] photos;
     private String cover;
@@ -20,6 +34,7 @@ public class Activity extends BaseEntity {
     private String email;
     private String[] openingHours;
     private String website;
+    @TextIndexed(weight = 2)
     private String description;
     private ActivityType type;
     private ActivityTagType[] tags;
@@ -42,6 +57,14 @@ public class Activity extends BaseEntity {
         this.name = name;
     }
 
+    public String getNameNormalized() {
+        return nameNormalized;
+    }
+
+    public void setNameNormalized(String nameNormalized) {
+        this.nameNormalized = nameNormalized;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -66,6 +89,14 @@ public class Activity extends BaseEntity {
         this.latitude = latitude;
     }
 
+    public GeoJsonPoint getLocation() {
+        return location;
+    }
+
+    public void setLocation(GeoJsonPoint location) {
+        this.location = location;
+    }
+
     public Double getLongitude() {
         return longitude;
     }
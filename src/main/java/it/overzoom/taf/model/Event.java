@@ -1,20 +1,24 @@
 package it.overzoom.taf.model;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import it.overzoom.taf.type.EventType;
 
-@Document(collection = "event")
+@Document(collection = "event", language = "italian")
+@CompoundIndex(name = "event_type_idx", def = "{'municipalityId': 1, 'type': 1}")
 public class Event extends BaseEntity {
 
+    @TextIndexed(weight = 10)
     private String title;
+    // title in minuscolo e senza accenti, per il filtro per prefisso
+    @Indexed
+    private String titleNormalized;
+    @TextIndexed(weight = 2)
     private String description;
     private EventType type;
     private LocalDateTime startDateTime;
@@ -25,6 +29,7 @@ public class Event extends BaseEntity {
     private String organizer;
     private String contactEmail;
     private String contactPhone;
+    @TextIndexed(weight = 5)
     private String[] tags;
     @Indexed
     private String municipalityId;
@@ -35,8 +40,6 @@ public class Event extends BaseEntity {
     private Boolean isPublic = true; // default to public
     private Boolean isCancelled = false;
     private String url;
-    private List<String> participants = new ArrayList<>(); // List of user IDs who registered for the event
-    private Map<String, LocalDateTime> checkInTimes = new HashMap<>();
 
     public String getTitle() {
         return title;
@@ -46,6 +49,14 @@ public class Event extends BaseEntity {
         this.title = title;
     }
 
+    public String getTitleNormalized() {
+        return titleNormalized;
+    }
+
+    public void setTitleNormalized(String titleNormalized) {
+        this.titleNormalized = titleNormalized;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -189,46 +200,4 @@ public class Event extends BaseEntity {
     public void setUrl(String url) {
         this.url = url;
     }
-
-    public List<String> getParticipants() {
-        return participants;
-    }
-
-    public void setParticipants(List<String> participants) {
-        this.participants = participants;
-    }
-
-    // Methods to handle participants
-    public void addParticipant(String userId) {
-        if (participants == null) {
-            participants = new ArrayList<>();
-        }
-
-        if (maxParticipants == null || currentParticipants < maxParticipants) {
-            if (!participants.contains(userId)) {
-                participants.add(userId);
-                currentParticipants++;
-            }
-        }
-    }
-
-    public void removeParticipant(String userId) {
-        if (participants != null && participants.contains(userId)) {
-            participants.remove(userId);
-            currentParticipants--;
-        }
-    }
-
-    public Map<String, LocalDateTime> getCheckInTimes() {
-        return checkInTimes;
-    }
-
-    public void setCheckInTimes(Map<String, LocalDateTime> checkInTimes) {
-        this.checkInTimes = checkInTimes;
-    }
-
-    // Metodo per aggiungere il check-in time
-    public void addCheckIn(String userId) {
-        checkInTimes.put(userId, LocalDateTime.now());
-    }
 }
@@ -0,0 +1,64 @@
+package it.overzoom.taf.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import it.overzoom.taf.type.RegistrationStatus;
+
+@Document(collection = "event_registration")
+@CompoundIndexes({
+        @CompoundIndex(name = "event_user_idx", def = "{'eventId': 1, 'userId': 1}", unique = true),
+        @CompoundIndex(name = "user_events_idx", def = "{'userId': 1, 'registeredAt': -1}"),
+        @CompoundIndex(name = "event_status_idx", def = "{'eventId': 1, 'status': 1}")
+})
+public class EventRegistration extends BaseEntity {
+
+    private String eventId;
+    private String userId; // ID Mongo dell'utente iscritto
+    private RegistrationStatus status = RegistrationStatus.REGISTERED;
+    private LocalDateTime registeredAt;
+    private LocalDateTime checkInTime;
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public RegistrationStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RegistrationStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getRegisteredAt() {
+        return registeredAt;
+    }
+
+    public void setRegisteredAt(LocalDateTime registeredAt) {
+        this.registeredAt = registeredAt;
+    }
+
+    public LocalDateTime getCheckInTime() {
+        return checkInTime;
+    }
+
+    public void setCheckInTime(LocalDateTime checkInTime) {
+        this.checkInTime = checkInTime;
+    }
+}
@@ -1,5 +1,8 @@
 package it.overzoom.taf.model;
 
+import org.springframework.data.mongodb.core.geo.GeoJsonMultiPolygon;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -15,6 +18,9 @@ public class Municipal extends BaseEntity {
     private String cover;
     private String logo;
     private String icon;
+    // Confine del territorio comunale, usato per la geolocalizzazione inversa
+    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonMultiPolygon boundary;
 
     public String getCity() {
         return city;
@@ -79,4 +85,12 @@ public class Municipal extends BaseEntity {
     public void setIcon(String icon) {
         this.icon = icon;
     }
+
+    public GeoJsonMultiPolygon getBoundary() {
+        return boundary;
+    }
+
+    public void setBoundary(GeoJsonMultiPolygon boundary) {
+        this.boundary = boundary;
+    }
 }
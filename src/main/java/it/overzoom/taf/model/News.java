@@ -3,13 +3,20 @@ package it.overzoom.taf.model;
 import java.time.LocalDateTime;
 
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-@Document(collection = "news")
+@Document(collection = "news", language = "italian")
 public class News extends BaseEntity {
 
+    @TextIndexed(weight = 10)
     private String title;
+    // title in minuscolo e senza accenti, per il filtro per prefisso
+    @Indexed
+    private String titleNormalized;
+    @TextIndexed
     private String content;
+    @TextIndexed(weight = 3)
     private String author;
     private LocalDateTime publicationDate;
     private String[] tags;
@@ -26,6 +33,14 @@ public class News extends BaseEntity {
         this.title = title;
     }
 
+    public String getTitleNormalized() {
+        return titleNormalized;
+    }
+
+    public void setTitleNormalized(String titleNormalized) {
+        this.titleNormalized = titleNormalized;
+    }
+
     public String getContent() {
         return content;
     }
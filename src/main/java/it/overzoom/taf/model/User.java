@@ -2,6 +2,7 @@ package it.overzoom.taf.model;
 
 import java.time.LocalDate;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -9,6 +10,10 @@ import org.springframework.data.mongodb.core.mapping.Field;
 import it.overzoom.taf.type.NotificationType;
 
 @Document(collection = "user")
+// notificationTypes e municipalityIds sono entrambi array: MongoDB non consente
+// indici composti su due array, per cui notificationTypes resta un filtro residuo.
+// _id subito dopo il comune serve l'ordinamento del fan-out senza sort in memoria
+@CompoundIndex(name = "push_recipients_by_id_idx", def = "{'municipalityIds': 1, '_id': 1, 'fcmToken': 1}")
 public class User extends BaseEntity {
 
     @Indexed
@@ -27,7 +32,6 @@ public class User extends BaseEntity {
 
     private String fcmToken;
 
-    @Indexed
     private String[] municipalityIds;
 
     private NotificationType[] notificationTypes;
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -16,5 +17,5 @@ public interface ActivityRepository extends MongoRepository<Activity, String> {
 
     Page<Activity> findByMunicipalityIdIn(String[] municipalityIds, Pageable pageable);
 
-    List<Activity> findByLatitudeBetweenAndLongitudeBetween(double south, double north, double west, double east);
+    List<Activity> findByLocationWithin(GeoJsonPolygon bounds);
 }
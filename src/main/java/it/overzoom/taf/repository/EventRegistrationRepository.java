@@ -0,0 +1,29 @@
+package it.overzoom.taf.repository;
+
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import it.overzoom.taf.model.EventRegistration;
+
+@Repository
+public interface EventRegistrationRepository extends MongoRepository<EventRegistration, String> {
+
+    boolean existsByEventIdAndUserId(String eventId, String userId);
+
+    Page<EventRegistration> findByEventId(String eventId, Pageable pageable);
+
+    // solo gli ID degli eventi a cui l'utente è iscritto
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'eventId': 1 }")
+    Stream<EventRegistration> streamEventIdsByUserId(String userId);
+
+    // solo gli ID degli utenti iscritti all'evento
+    @Query(value = "{ 'eventId': ?0 }", fields = "{ 'userId': 1 }")
+    Stream<EventRegistration> streamUserIdsByEventId(String eventId);
+
+    void deleteByEventId(String eventId);
+}
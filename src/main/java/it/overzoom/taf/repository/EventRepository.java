@@ -1,11 +1,11 @@
 package it.overzoom.taf.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import it.overzoom.taf.model.Event;
@@ -19,6 +19,5 @@ public interface EventRepository extends MongoRepository<Event, String> {
     // cerca per activityId
     List<Event> findByActivityId(String activityId);
 
-    @Query("{'participants': ?0}")
-    Page<Event> findEventsByUserId(String userId, Pageable pageable);
+    Page<Event> findByIdIn(Collection<String> ids, Pageable pageable);
 }
@@ -1,8 +1,10 @@
 package it.overzoom.taf.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import it.overzoom.taf.model.Municipal;
@@ -15,4 +17,8 @@ public interface MunicipalRepository extends MongoRepository<Municipal, String>
     Optional<Municipal> findByCityAndProvince(String city, String province);
 
     Optional<Municipal> findByDomain(String domain);
+
+    // Comuni il cui confine contiene il punto, tramite l'indice 2dsphere su boundary
+    @Query(value = "{ 'boundary': { $geoIntersects: { $geometry: { type: 'Point', coordinates: [?1, ?0] } } } }")
+    List<Municipal> findByBoundaryContaining(double latitude, double longitude);
 }
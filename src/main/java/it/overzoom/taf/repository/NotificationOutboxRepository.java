@@ -0,0 +1,13 @@
+package it.overzoom.taf.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import it.overzoom.taf.model.NotificationOutbox;
+import it.overzoom.taf.type.OutboxStatus;
+
+@Repository
+public interface NotificationOutboxRepository extends MongoRepository<NotificationOutbox, String> {
+
+    long countByStatus(OutboxStatus status);
+}
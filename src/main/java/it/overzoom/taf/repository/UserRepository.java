@@ -1,9 +1,10 @@
 package it.overzoom.taf.repository;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import it.overzoom.taf.model.User;
@@ -14,5 +15,13 @@ public interface UserRepository extends MongoRepository<User, String> {
 
     Optional<User> findByUserId(String userId);
 
-    List<User> findByNotificationTypesContaining(NotificationType notificationType);
+    // Solo i comuni dell'utente, per la risoluzione dello scope nelle ricerche
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'municipalityIds': 1 }")
+    Optional<User> findMunicipalityIdsByUserId(String userId);
+
+    // Destinatari push di un comune: restituisce solo _id e fcmToken tramite cursore, in ordine di _id
+    // così un job interrotto può riprendere dal punto raggiunto
+    @Query(value = "{ 'municipalityIds': ?1, 'notificationTypes': ?0, 'fcmToken': { $nin: [null, ''] } }",
+            fields = "{ '_id': 1, 'fcmToken': 1 }", sort = "{ '_id': 1 }")
+    Stream<User> streamPushRecipients(NotificationType notificationType, String municipalityId);
 }
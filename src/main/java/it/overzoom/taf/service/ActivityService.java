@@ -8,6 +8,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
+import it.overzoom.taf.dto.MapClusterDTO;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.Activity;
 
@@ -38,4 +39,10 @@ public interface ActivityService {
     Page<Activity> findByMunicipalityIdIn(String[] municipalityIds, Pageable pageable);
 
     List<Activity> findActivitiesInBounds(double north, double south, double east, double west);
+
+    List<Activity> findActivitiesInBounds(double north, double south, double east, double west, int limit);
+
+    List<MapClusterDTO> findClustersInBounds(double north, double south, double east, double west, int zoom);
+
+    List<Activity> findNearestActivities(double latitude, double longitude, double maxDistanceMeters, int limit);
 }
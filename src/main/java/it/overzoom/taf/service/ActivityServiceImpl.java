@@ -4,42 +4,60 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import it.overzoom.taf.dto.MapClusterDTO;
+import it.overzoom.taf.exception.InvalidBoundingBoxException;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.Activity;
-import it.overzoom.taf.model.User;
 import it.overzoom.taf.repository.ActivityRepository;
-import it.overzoom.taf.repository.UserRepository;
+import it.overzoom.taf.type.ActivityType;
 import it.overzoom.taf.type.EntityType;
 import it.overzoom.taf.type.NotificationType;
 import it.overzoom.taf.type.PhotoType;
+import it.overzoom.taf.type.SuggestType;
+import it.overzoom.taf.utils.GeoUtils;
 
 @Service
 public class ActivityServiceImpl implements ActivityService {
 
     private final ActivityRepository activityRepository;
-    private final UserRepository userRepository;
     private final PhotoService photoService;
-    private final NotificationService notificationService;
+    private final PushFanoutService pushFanoutService;
+    private final MongoTemplate mongoTemplate;
+    private final SuggestIndex suggestIndex;
+    private final int cellsPerTile;
+    private final int maxCells;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ActivityServiceImpl.class);
 
-    public ActivityServiceImpl(ActivityRepository activityRepository, UserRepository userRepository,
-            PhotoService photoService, NotificationService notificationService) {
+    public ActivityServiceImpl(ActivityRepository activityRepository, PhotoService photoService,
+            PushFanoutService pushFanoutService, MongoTemplate mongoTemplate, SuggestIndex suggestIndex,
+            @Value("${map.cluster.cells-per-tile:4}") int cellsPerTile,
+            @Value("${map.cluster.max-cells:2500}") int maxCells) {
         this.activityRepository = activityRepository;
-        this.userRepository = userRepository;
         this.photoService = photoService;
-        this.notificationService = notificationService;
+        this.pushFanoutService = pushFanoutService;
+        this.mongoTemplate = mongoTemplate;
+        this.suggestIndex = suggestIndex;
+        this.cellsPerTile = cellsPerTile;
+        this.maxCells = maxCells;
     }
 
     @Override
@@ -64,22 +82,12 @@ public class ActivityServiceImpl implements ActivityService {
     @Transactional
     public Activity create(Activity activity) {
         log.info("Creating new activity: {}", activity);
-        activity = activityRepository.save(activity);
+        activity = save(activity);
 
-        // Notifica push solo agli utenti iscritti
-        List<User> subscribedUsers = userRepository
-                .findByNotificationTypesContaining(NotificationType.ACTIVITY_COMMUNICATIONS);
-        log.info("Sending notifications to subscribed users: {}", subscribedUsers.size());
-
-        // invia notifica push a ciascun utente
-        for (User user : subscribedUsers) {
-            if (Arrays.asList(user.getMunicipalityIds()).contains(activity.getMunicipalityId())) {
-                notificationService.sendPushToUser(user.getId(), "Nuova attività", activity.getName(),
-                        Map.of("activityId", activity.getId(), "type",
-                                NotificationType.ACTIVITY_COMMUNICATIONS.name()));
-                log.info("Notification sent to user {} for activity ID {}", user.getId(), activity.getId());
-            }
-        }
+        // Notifica push agli utenti iscritti del comune, inviata in modo asincrono
+        pushFanoutService.submit(NotificationType.ACTIVITY_COMMUNICATIONS, activity.getMunicipalityId(),
+                "Nuova attività", activity.getName(),
+                Map.of("activityId", activity.getId(), "type", NotificationType.ACTIVITY_COMMUNICATIONS.name()));
         return activity;
     }
 
@@ -103,7 +111,7 @@ public class ActivityServiceImpl implements ActivityService {
             existing.setLatitude(activity.getLatitude());
             existing.setLongitude(activity.getLongitude());
             return existing;
-        }).map(activityRepository::save);
+        }).map(this::save);
     }
 
     @Override
@@ -140,7 +148,7 @@ public class ActivityServiceImpl implements ActivityService {
             if (activity.getLongitude() != null)
                 existing.setLongitude(activity.getLongitude());
             return existing;
-        }).map(activityRepository::save);
+        }).map(this::save);
     }
 
     @Override
@@ -148,6 +156,14 @@ public class ActivityServiceImpl implements ActivityService {
     public void deleteById(String id) {
         log.info("Deleting activity with ID: {}", id);
         activityRepository.deleteById(id);
+        suggestIndex.remove(SuggestType.ACTIVITY, id);
+    }
+
+    // Ogni salvataggio aggiorna anche l'indice dei suggerimenti
+    private Activity save(Activity activity) {
+        activity = activityRepository.save(activity);
+        suggestIndex.put(activity);
+        return activity;
     }
 
     @Transactional
@@ -242,6 +258,93 @@ public class ActivityServiceImpl implements ActivityService {
     public List<Activity> findActivitiesInBounds(double north, double south, double east, double west) {
         // south < north, west < east
         log.info("Fetching activities within bounds: North={} South={} East={} West={}", north, south, east, west);
-        return activityRepository.findByLatitudeBetweenAndLongitudeBetween(south, north, west, east);
+        return activityRepository.findByLocationWithin(GeoUtils.boundingBox(north, south, east, west));
+    }
+
+    @Override
+    public List<Activity> findActivitiesInBounds(double north, double south, double east, double west, int limit) {
+        log.info("Fetching at most {} activities within bounds: North={} South={} East={} West={}", limit, north,
+                south, east, west);
+        Query query = new Query(Criteria.where("location").within(GeoUtils.boundingBox(north, south, east, west)))
+                .limit(limit);
+        return mongoTemplate.find(query, Activity.class);
+    }
+
+    @Override
+    public List<MapClusterDTO> findClustersInBounds(double north, double south, double east, double west,
+            int zoom) {
+        // Celle allineate all'origine globale, così i cluster restano stabili mentre la mappa scorre
+        double cell = 360.0 / (1L << zoom) / cellsPerTile;
+        // Il numero di celle dipende da bbox e zoom scelti dal client: oltre maxCells la cella raddoppia,
+        // restando allineata alla griglia degli zoom inferiori. boundingBox non attraversa l'antimeridiano
+        // (scambierebbe east e west), quindi qui east < west viene rifiutato invece di contare celle diverse
+        if (east < west) {
+            throw new InvalidBoundingBoxException("Bounding box non valido: east deve essere maggiore di west");
+        }
+        double width = east - west;
+        double height = Math.abs(north - south);
+        while (Math.ceil(width / cell) * Math.ceil(height / cell) > maxCells) {
+            cell *= 2;
+        }
+        log.info("Clustering activities within bounds: North={} South={} East={} West={} zoom={} cell={}°", north,
+                south, east, west, zoom, cell);
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("location").within(GeoUtils.boundingBox(north, south, east, west))),
+                context -> new Document("$project", new Document("type", 1)
+                        .append("latitude", 1)
+                        .append("longitude", 1)
+                        .append("cx", cellIndex("$longitude", 180, cell))
+                        .append("cy", cellIndex("$latitude", 90, cell))),
+                // Primo raggruppamento per cella e tipo, per ricavare il tipo dominante
+                context -> new Document("$group", new Document("_id",
+                        new Document("cx", "$cx").append("cy", "$cy").append("type", "$type"))
+                        .append("count", new Document("$sum", 1))
+                        .append("latitude", new Document("$sum", "$latitude"))
+                        .append("longitude", new Document("$sum", "$longitude"))
+                        .append("activityId", new Document("$first", "$_id"))),
+                context -> new Document("$group", new Document("_id",
+                        new Document("cx", "$_id.cx").append("cy", "$_id.cy"))
+                        .append("count", new Document("$sum", "$count"))
+                        .append("latitude", new Document("$sum", "$latitude"))
+                        .append("longitude", new Document("$sum", "$longitude"))
+                        .append("activityId", new Document("$first", "$activityId"))
+                        .append("types", new Document("$push",
+                                new Document("type", "$_id.type").append("count", "$count")))));
+
+        List<Document> cells = mongoTemplate.aggregate(aggregation, "activity", Document.class).getMappedResults();
+        List<MapClusterDTO> clusters = new ArrayList<>(cells.size());
+        for (Document cellDocument : cells) {
+            long count = ((Number) cellDocument.get("count")).longValue();
+            double latitude = ((Number) cellDocument.get("latitude")).doubleValue() / count;
+            double longitude = ((Number) cellDocument.get("longitude")).doubleValue() / count;
+            String dominantType = cellDocument.getList("types", Document.class).stream()
+                    .max(Comparator.comparingLong(type -> ((Number) type.get("count")).longValue()))
+                    .map(type -> type.getString("type"))
+                    .orElse(null);
+            clusters.add(new MapClusterDTO(latitude, longitude, count,
+                    dominantType != null ? ActivityType.valueOf(dominantType) : null,
+                    count == 1 ? cellDocument.get("activityId").toString() : null));
+        }
+        return clusters;
+    }
+
+    // floor((valore + offset) / cella), calcolato dentro Mongo
+    private static Document cellIndex(String field, double offset, double cell) {
+        return new Document("$floor", new Document("$divide",
+                List.of(new Document("$add", List.of(field, offset)), cell)));
+    }
+
+    @Override
+    public List<Activity> findNearestActivities(double latitude, double longitude, double maxDistanceMeters,
+            int limit) {
+        log.info("Fetching {} nearest activities to lat={} lon={} within {}m", limit, latitude, longitude,
+                maxDistanceMeters);
+        // $near restituisce i documenti già ordinati per distanza crescente
+        Query query = new Query(Criteria.where("location")
+                .near(GeoUtils.point(latitude, longitude))
+                .maxDistance(maxDistanceMeters))
+                .limit(limit);
+        return mongoTemplate.find(query, Activity.class);
     }
 }
@@ -10,6 +10,8 @@ import org.springframework.web.multipart.MultipartFile;
 
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.EventRegistration;
+import it.overzoom.taf.utils.FieldProjection;
 
 public interface EventService {
 
@@ -43,5 +45,7 @@ public interface EventService {
 
     void checkInUser(String eventId, String userId) throws ResourceNotFoundException, BadRequestException;
 
-    Page<Event> getEventsByUserId(String userId, Pageable pageable);
+    Page<EventRegistration> getParticipants(String eventId, Pageable pageable) throws ResourceNotFoundException;
+
+    Page<Event> getEventsByUserId(String userId, Pageable pageable, FieldProjection projection);
 }
@@ -2,6 +2,7 @@ package it.overzoom.taf.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -9,22 +10,37 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.apache.coyote.BadRequestException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.EventRegistration;
 import it.overzoom.taf.model.User;
+import it.overzoom.taf.repository.EventRegistrationRepository;
 import it.overzoom.taf.repository.EventRepository;
 import it.overzoom.taf.repository.UserRepository;
 import it.overzoom.taf.type.EntityType;
 import it.overzoom.taf.type.NotificationType;
 import it.overzoom.taf.type.PhotoType;
+import it.overzoom.taf.type.RegistrationStatus;
+import it.overzoom.taf.type.SuggestType;
+import it.overzoom.taf.utils.FieldProjection;
 
 @Service
 public class EventServiceImpl implements EventService {
@@ -33,14 +49,24 @@ public class EventServiceImpl implements EventService {
     private final PhotoService photoService;
     private final NotificationService notificationService;
     private final UserRepository userRepository;
+    private final PushFanoutService pushFanoutService;
+    private final MongoTemplate mongoTemplate;
+    private final EventRegistrationRepository registrationRepository;
+    private final SuggestIndex suggestIndex;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(EventServiceImpl.class);
 
     public EventServiceImpl(EventRepository eventRepository, PhotoService photoService,
-            NotificationService notificationService, UserRepository userRepository) {
+            NotificationService notificationService, UserRepository userRepository,
+            PushFanoutService pushFanoutService, MongoTemplate mongoTemplate,
+            EventRegistrationRepository registrationRepository, SuggestIndex suggestIndex) {
         this.eventRepository = eventRepository;
         this.photoService = photoService;
         this.notificationService = notificationService;
         this.userRepository = userRepository;
+        this.pushFanoutService = pushFanoutService;
+        this.mongoTemplate = mongoTemplate;
+        this.registrationRepository = registrationRepository;
+        this.suggestIndex = suggestIndex;
     }
 
     @Override
@@ -65,18 +91,11 @@ public class EventServiceImpl implements EventService {
     @Transactional
     public Event create(Event event) {
         log.info("Creating new event: {}", event);
-        event = eventRepository.save(event);
+        event = save(event);
 
-        // Notifica push solo agli utenti iscritti il cui municipalityId dell'evento è
-        // contenuto nei municipalityIds dell'utente
-        List<User> subscribedUsers = userRepository.findByNotificationTypesContaining(NotificationType.NEW_EVENTS);
-        for (User user : subscribedUsers) {
-            if (Arrays.asList(user.getMunicipalityIds()).contains(event.getMunicipalityId())) {
-                log.info("Sending push notification to user {} for new event: {}", user.getId(), event.getTitle());
-                notificationService.sendPushToUser(user.getId(), "Nuovo evento", event.getTitle(),
-                        Map.of("eventId", event.getId(), "type", NotificationType.NEW_EVENTS.name()));
-            }
-        }
+        // Notifica push agli utenti iscritti del comune, inviata in modo asincrono
+        pushFanoutService.submit(NotificationType.NEW_EVENTS, event.getMunicipalityId(), "Nuovo evento",
+                event.getTitle(), Map.of("eventId", event.getId(), "type", NotificationType.NEW_EVENTS.name()));
 
         return event;
     }
@@ -106,23 +125,10 @@ public class EventServiceImpl implements EventService {
             existing.setUrl(event.getUrl());
 
             // Notifica tutti i partecipanti che l'evento è stato aggiornato
-            for (String userId : existing.getParticipants()) {
-                Optional<User> userOpt = userRepository.findById(userId);
-                userOpt.ifPresent(user -> {
-                    if (Arrays.asList(user.getNotificationTypes()).contains(NotificationType.SUBSCRIPTION_EVENTS)) {
-                        log.info("Sending push notification to user {} for updated event: {}", user.getId(),
-                                existing.getTitle());
-                        String title = "L'evento " + existing.getTitle() + " è stato aggiornato!";
-                        String message = "Dettagli dell'evento: " + existing.getTitle();
-                        notificationService.sendPushToUser(user.getId(), title, message,
-                                Map.of("eventId", existing.getId(), "type",
-                                        NotificationType.SUBSCRIPTION_EVENTS.name()));
-                    }
-                });
-            }
+            notifyParticipants(existing);
 
             return existing;
-        }).map(eventRepository::save);
+        }).map(this::save);
     }
 
     @Override
@@ -207,24 +213,29 @@ public class EventServiceImpl implements EventService {
 
             // Se l'evento è stato aggiornato, invia notifiche ai partecipanti
             if (isUpdated) {
-                for (String userId : existing.getParticipants()) {
-                    Optional<User> userOpt = userRepository.findById(userId);
-                    userOpt.ifPresent(user -> {
-                        if (Arrays.asList(user.getNotificationTypes()).contains(NotificationType.SUBSCRIPTION_EVENTS)) {
-                            log.info("Sending push notification to user {} for updated event: {}", user.getId(),
-                                    existing.getTitle());
-                            String title = "L'evento " + existing.getTitle() + " è stato aggiornato!";
-                            String message = "Dettagli dell'evento: " + existing.getTitle();
-                            notificationService.sendPushToUser(user.getId(), title, message,
-                                    Map.of("eventId", existing.getId(), "type",
-                                            NotificationType.SUBSCRIPTION_EVENTS.name()));
-                        }
-                    });
-                }
+                notifyParticipants(existing);
             }
 
             return existing;
-        }).map(eventRepository::save);
+        }).map(this::save);
+    }
+
+    // Un unico job di fan-out risolve i partecipanti iscritti alle notifiche con query $in a blocchi
+    private void notifyParticipants(Event event) {
+        List<String> participants;
+        try (Stream<EventRegistration> registrations = registrationRepository
+                .streamUserIdsByEventId(event.getId())) {
+            participants = registrations.map(EventRegistration::getUserId).toList();
+        }
+        if (participants.isEmpty()) {
+            return;
+        }
+        log.info("Sending push notification to {} participants for updated event: {}",
+                participants.size(), event.getTitle());
+        pushFanoutService.submitToUsers(participants, NotificationType.SUBSCRIPTION_EVENTS,
+                "L'evento " + event.getTitle() + " è stato aggiornato!",
+                "Dettagli dell'evento: " + event.getTitle(),
+                Map.of("eventId", event.getId(), "type", NotificationType.SUBSCRIPTION_EVENTS.name()));
     }
 
     @Override
@@ -232,6 +243,14 @@ public class EventServiceImpl implements EventService {
     public void deleteById(String id) {
         log.info("Deleting event with ID: {}", id);
         eventRepository.deleteById(id);
+        registrationRepository.deleteByEventId(id);
+        suggestIndex.remove(SuggestType.EVENT, id);
+    }
+
+    private Event save(Event event) {
+        event = eventRepository.save(event);
+        suggestIndex.put(event);
+        return event;
     }
 
     @Transactional
@@ -323,8 +342,7 @@ public class EventServiceImpl implements EventService {
 
     public boolean isUserRegistered(String eventId, String userId) {
         log.info("Checking if user with ID: {} is registered for event with ID: {}", userId, eventId);
-        Optional<Event> event = findById(eventId);
-        return event.map(value -> value.getParticipants().contains(userId)).orElse(false);
+        return registrationRepository.existsByEventIdAndUserId(eventId, userId);
     }
 
     @Transactional
@@ -332,32 +350,48 @@ public class EventServiceImpl implements EventService {
     public void registerUserToEvent(String eventId, String userId) throws ResourceNotFoundException,
             BadRequestException {
         log.info("Registering user with ID: {} to event with ID: {}", userId, eventId);
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new ResourceNotFoundException("Evento non trovato con ID: " + eventId));
-
-        if (event.getIsCancelled()) {
-            throw new BadRequestException("L'evento è stato cancellato.");
-        }
-
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato con ID: " + userId));
 
-        if (event.getParticipants().contains(user.getId())) {
+        // L'indice univoco (eventId, userId) impedisce le doppie iscrizioni
+        EventRegistration registration = new EventRegistration();
+        registration.setEventId(eventId);
+        registration.setUserId(user.getId());
+        registration.setStatus(RegistrationStatus.REGISTERED);
+        registration.setRegisteredAt(LocalDateTime.now());
+        try {
+            registration = registrationRepository.insert(registration);
+        } catch (DuplicateKeyException e) {
             throw new BadRequestException("L'utente è già registrato a questo evento.");
         }
 
-        if (!canUserRegister(eventId)) {
+        // Il posto viene occupato in modo atomico solo se l'evento non è
+        // cancellato e c'è ancora capienza
+        Query query = Query.query(Criteria.where("_id").is(eventId)
+                .and("isCancelled").ne(true)
+                .andOperator(hasCapacity()));
+        Update update = new Update()
+                .inc("currentParticipants", 1)
+                .inc("version", 1);
+        Event event = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                Event.class);
+
+        if (event == null) {
+            registrationRepository.delete(registration);
+            Event current = eventRepository.findById(eventId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Evento non trovato con ID: " + eventId));
+            if (Boolean.TRUE.equals(current.getIsCancelled())) {
+                throw new BadRequestException("L'evento è stato cancellato.");
+            }
             throw new BadRequestException("L'evento è pieno.");
         }
 
-        event.addParticipant(user.getId());
-
-        eventRepository.save(event);
         notificationService.sendPushToUser(
                 user.getId(),
                 "Registrazione evento",
                 "La registrazione all'evento '" + event.getTitle() + "' è avvenuta con successo!",
-                Map.of("eventId", eventId));
+                Map.of("eventId", eventId),
+                "EVENT_REGISTRATION:" + eventId + ":" + user.getId() + ":" + registration.getId());
 
     }
 
@@ -366,48 +400,89 @@ public class EventServiceImpl implements EventService {
     public void unregisterUserFromEvent(String eventId, String userId) throws ResourceNotFoundException,
             BadRequestException {
         log.info("Unregistering user with ID: {} from event with ID: {}", userId, eventId);
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new ResourceNotFoundException("Evento non trovato con ID: " + eventId));
-
         User user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato con ID: " + userId));
 
-        if (!event.getParticipants().contains(user.getId())) {
+        long deleted = mongoTemplate.remove(registrationQuery(eventId, user.getId()), EventRegistration.class)
+                .getDeletedCount();
+        if (deleted == 0) {
+            if (!eventRepository.existsById(eventId)) {
+                throw new ResourceNotFoundException("Evento non trovato con ID: " + eventId);
+            }
             throw new BadRequestException("L'utente non è registrato a questo evento.");
         }
 
-        event.removeParticipant(user.getId());
-
-        if (event.getCheckInTimes().containsKey(user.getId())) {
-            event.getCheckInTimes().remove(user.getId());
+        Event event = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(eventId)),
+                new Update().inc("currentParticipants", -1).inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true), Event.class);
+        if (event == null) {
+            throw new ResourceNotFoundException("Evento non trovato con ID: " + eventId);
         }
 
-        eventRepository.save(event);
         notificationService.sendPushToUser(
                 user.getId(),
                 "Cancellazione registrazione evento",
                 "La registrazione all'evento '" + event.getTitle() + "' è stata annullata.",
-                Map.of("eventId", eventId));
+                Map.of("eventId", eventId),
+                // La versione dell'evento dopo l'annullamento distingue le iscrizioni successive
+                "EVENT_UNREGISTRATION:" + eventId + ":" + user.getId() + ":" + event.getVersion());
     }
 
     @Transactional
     @Override
     public void checkInUser(String eventId, String userId) throws ResourceNotFoundException, BadRequestException {
         log.info("Checking in user with ID: {} for event with ID: {}", userId, eventId);
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new ResourceNotFoundException("Evento non trovato con ID: " + eventId));
-
-        if (!event.getParticipants().contains(userId)) {
+        Update update = new Update()
+                .set("status", RegistrationStatus.CHECKED_IN)
+                .set("checkInTime", LocalDateTime.now());
+
+        if (mongoTemplate.updateFirst(registrationQuery(eventId, userId), update, EventRegistration.class)
+                .getMatchedCount() == 0) {
+            if (!eventRepository.existsById(eventId)) {
+                throw new ResourceNotFoundException("Evento non trovato con ID: " + eventId);
+            }
             throw new BadRequestException("L'utente non è registrato a questo evento.");
         }
+    }
+
+    @Override
+    public Page<EventRegistration> getParticipants(String eventId, Pageable pageable)
+            throws ResourceNotFoundException {
+        log.info("Fetching participants for event with ID: {}", eventId);
+        if (!eventRepository.existsById(eventId)) {
+            throw new ResourceNotFoundException("Evento non trovato con ID: " + eventId);
+        }
+        return registrationRepository.findByEventId(eventId, pageable);
+    }
 
-        event.addCheckIn(userId);
+    private Query registrationQuery(String eventId, String userId) {
+        return Query.query(Criteria.where("eventId").is(eventId).and("userId").is(userId));
+    }
 
-        eventRepository.save(event);
+    // Stessa regola di canUserRegister espressa come filtro: posti liberi oppure,
+    // per gli eventi pubblici, overbooking fino al 10% della capienza
+    private Criteria hasCapacity() {
+        return new Criteria().orOperator(
+                Criteria.where("maxParticipants").is(null),
+                Criteria.expr(ComparisonOperators.valueOf("currentParticipants").lessThan("maxParticipants")),
+                new Criteria().andOperator(
+                        Criteria.where("isPublic").is(true),
+                        Criteria.expr(ComparisonOperators
+                                .valueOf(ArithmeticOperators.valueOf("currentParticipants").add(1))
+                                .lessThanEqualTo(ArithmeticOperators.valueOf("maxParticipants").multiplyBy(1.1)))));
     }
 
-    public Page<Event> getEventsByUserId(String userId, Pageable pageable) {
+    public Page<Event> getEventsByUserId(String userId, Pageable pageable, FieldProjection projection) {
         log.info("Fetching events for user with ID: {}", userId);
-        return eventRepository.findEventsByUserId(userId, pageable);
+        List<String> eventIds;
+        try (Stream<EventRegistration> registrations = registrationRepository.streamEventIdsByUserId(userId)) {
+            eventIds = registrations.map(EventRegistration::getEventId).toList();
+        }
+        if (projection.isAll()) {
+            return eventRepository.findByIdIn(eventIds, pageable);
+        }
+        Query query = projection.applyTo(new Query(Criteria.where("id").in(eventIds)).with(pageable));
+        return PageableExecutionUtils.getPage(mongoTemplate.find(query, Event.class), pageable,
+                () -> mongoTemplate.count(new Query(Criteria.where("id").in(eventIds)), Event.class));
     }
 }
@@ -0,0 +1,12 @@
+package it.overzoom.taf.service;
+
+import java.io.IOException;
+
+import it.overzoom.taf.dto.FcmCredentialStatsDTO;
+
+public interface FcmCredentialProvider {
+
+    String getAccessToken() throws IOException;
+
+    FcmCredentialStatsDTO getStats();
+}
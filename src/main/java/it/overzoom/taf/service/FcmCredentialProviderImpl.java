@@ -0,0 +1,172 @@
+package it.overzoom.taf.service;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.overzoom.taf.dto.FcmCredentialStatsDTO;
+
+/**
+ * Cache dell'access token OAuth2 usato per FCM. Il file della service account
+ * viene letto una sola volta; il token in cache è immutabile e pubblicato
+ * tramite campo volatile, per cui i chiamanti concorrenti lo leggono senza
+ * lock. Il rinnovo avviene in background prima della scadenza e, se il token
+ * è già scaduto, un solo chiamante lo rinnova mentre gli altri attendono.
+ * La durata dei rinnovi è registrata nel timer taf.fcm.credentials.refresh,
+ * distinto per esito, da cui derivano anche le statistiche per gli admin.
+ */
+@Service
+public class FcmCredentialProviderImpl implements FcmCredentialProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(FcmCredentialProviderImpl.class);
+    private static final List<String> SCOPES = List.of("https://www.googleapis.com/auth/firebase.messaging");
+    // Margine oltre il quale il token non viene più consegnato ai chiamanti
+    private static final long EXPIRY_SAFETY_MILLIS = 60_000;
+
+    private final String serviceAccountFile;
+    private final long refreshAheadMillis;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private GoogleCredentials credentials;
+    private volatile CachedToken cachedToken;
+
+    private final Timer refreshSuccess;
+    private final Timer refreshFailure;
+    private volatile long lastRefreshMillis;
+    private volatile Instant lastRefreshAt;
+    private volatile String lastError;
+
+    public FcmCredentialProviderImpl(@Value("${firebase.service-account-file}") String serviceAccountFile,
+            @Value("${firebase.credentials.refresh-ahead-seconds:300}") long refreshAheadSeconds,
+            MeterRegistry meterRegistry) {
+        this.serviceAccountFile = serviceAccountFile;
+        this.refreshAheadMillis = refreshAheadSeconds * 1000;
+        this.refreshSuccess = refreshTimer(meterRegistry, "success");
+        this.refreshFailure = refreshTimer(meterRegistry, "failure");
+    }
+
+    private static Timer refreshTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("taf.fcm.credentials.refresh")
+                .description("Durata dei rinnovi dell'access token FCM")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getAccessToken() throws IOException {
+        CachedToken token = cachedToken;
+        if (token != null && token.isUsable(System.currentTimeMillis())) {
+            return token.value;
+        }
+        refreshLock.lock();
+        try {
+            // Un altro chiamante potrebbe aver già rinnovato il token
+            token = cachedToken;
+            if (token != null && token.isUsable(System.currentTimeMillis())) {
+                return token.value;
+            }
+            return refresh().value;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Rinnova il token in anticipo così i chiamanti non attendono mai il round-trip verso Google
+    @Scheduled(fixedDelayString = "${firebase.credentials.check-interval-ms:60000}")
+    public void refreshAhead() {
+        CachedToken token = cachedToken;
+        if (token == null || System.currentTimeMillis() < token.expiresAtMillis - refreshAheadMillis) {
+            return;
+        }
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (IOException e) {
+            log.warn("Rinnovo anticipato dell'access token FCM fallito: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    public FcmCredentialStatsDTO getStats() {
+        CachedToken token = cachedToken;
+        FcmCredentialStatsDTO stats = new FcmCredentialStatsDTO();
+        stats.setTokenExpiresAt(token != null ? Instant.ofEpochMilli(token.expiresAtMillis) : null);
+        stats.setLastRefreshAt(lastRefreshAt);
+        stats.setRefreshCount(refreshSuccess.count());
+        stats.setRefreshFailures(refreshFailure.count());
+        stats.setLastRefreshMillis(lastRefreshMillis);
+        stats.setAverageRefreshMillis(refreshSuccess.mean(TimeUnit.MILLISECONDS));
+        stats.setMaxRefreshMillis((long) refreshSuccess.max(TimeUnit.MILLISECONDS));
+        stats.setLastError(lastError);
+        return stats;
+    }
+
+    // Da invocare solo con refreshLock acquisito
+    private CachedToken refresh() throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (credentials == null) {
+                credentials = loadCredentials();
+            }
+            credentials.refresh();
+            AccessToken accessToken = credentials.getAccessToken();
+            CachedToken token = new CachedToken(accessToken.getTokenValue(),
+                    accessToken.getExpirationTime().getTime());
+            cachedToken = token;
+
+            long elapsedNanos = System.nanoTime() - start;
+            refreshSuccess.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            long elapsed = elapsedNanos / 1_000_000;
+            lastRefreshMillis = elapsed;
+            lastRefreshAt = Instant.now();
+            lastError = null;
+            log.info("Access token FCM rinnovato in {} ms, scadenza {}", elapsed,
+                    Instant.ofEpochMilli(token.expiresAtMillis));
+            return token;
+        } catch (IOException e) {
+            refreshFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            lastError = e.getMessage();
+            log.error("Errore durante il rinnovo dell'access token FCM dal file {}", serviceAccountFile, e);
+            throw e;
+        }
+    }
+
+    private GoogleCredentials loadCredentials() throws IOException {
+        try (InputStream serviceAccount = new FileInputStream(serviceAccountFile)) {
+            return GoogleCredentials.fromStream(serviceAccount).createScoped(SCOPES);
+        }
+    }
+
+    private static final class CachedToken {
+        private final String value;
+        private final long expiresAtMillis;
+
+        private CachedToken(String value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean isUsable(long now) {
+            return now < expiresAtMillis - EXPIRY_SAFETY_MILLIS;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package it.overzoom.taf.service;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
+import it.overzoom.taf.dto.FcmSendResult;
+
 public interface FcmNotificationService {
 
     boolean sendNotification(String targetToken, String title, String body, Map<String, String> data)
             throws IOException;
+
+    List<FcmSendResult> sendNotifications(List<String> targetTokens, String title, String body,
+            Map<String, String> data) throws IOException;
 }
@@ -1,20 +1,38 @@
 package it.overzoom.taf.service;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.google.auth.oauth2.GoogleCredentials;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.overzoom.taf.dto.FcmSendResult;
+import it.overzoom.taf.type.FcmSendStatus;
+import jakarta.annotation.PreDestroy;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
@@ -24,37 +42,54 @@ public class FcmNotificationServiceImpl implements FcmNotificationService {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FcmNotificationServiceImpl.class);
 
-    @Value("${firebase.service-account-file}")
-    private String serviceAccountFile;
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final byte[] MESSAGE_PREFIX = "{\"message\":{\"token\":".getBytes(StandardCharsets.UTF_8);
+    private static final Gson gson = new Gson();
+    private static final String TOKEN_FIELD = "message.token";
 
-    @Value("${firebase.fcm-api-url}")
-    private String fcmApiUrl;
+    private final FcmCredentialProvider credentialProvider;
+    private final String fcmApiUrl;
+    private final int maxInFlight;
+    private final OkHttpClient client;
+    // Latenza di ogni invio per esito: i conteggi per esito danno anche i tassi di successo e di token non validi
+    private final Map<FcmSendStatus, Timer> sendTimers = new EnumMap<>(FcmSendStatus.class);
 
-    private String accessToken;
-    private long tokenExpiration = 0;
+    public FcmNotificationServiceImpl(FcmCredentialProvider credentialProvider, MeterRegistry meterRegistry,
+            @Value("${firebase.fcm-api-url}") String fcmApiUrl,
+            @Value("${firebase.http.max-in-flight:128}") int maxInFlight,
+            @Value("${firebase.http.max-idle-connections:8}") int maxIdleConnections,
+            @Value("${firebase.http.keep-alive-seconds:300}") long keepAliveSeconds,
+            @Value("${firebase.http.call-timeout-seconds:30}") long callTimeoutSeconds) {
+        this.credentialProvider = credentialProvider;
+        this.fcmApiUrl = fcmApiUrl;
+        this.maxInFlight = maxInFlight;
 
-    private static final OkHttpClient client = new OkHttpClient();
-    private static final Gson gson = new Gson();
+        // Con HTTP/2 tutte le richieste verso FCM viaggiano multiplexate su poche
+        // connessioni: il dispatcher deve quindi consentire l'intero parallelismo
+        // verso un singolo host
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxInFlight);
+        dispatcher.setMaxRequestsPerHost(maxInFlight);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .callTimeout(Duration.ofSeconds(callTimeoutSeconds))
+                .build();
 
-    // Ottieni token di accesso per la service account
-    private String getAccessToken() throws IOException {
-        try {
-            InputStream serviceAccount = new FileInputStream(serviceAccountFile);
-
-            if (accessToken == null || System.currentTimeMillis() > tokenExpiration) {
-                log.info("Access token scaduto o non presente, ottenendo nuovo token...");
-                GoogleCredentials googleCredentials = GoogleCredentials
-                        .fromStream(serviceAccount)
-                        .createScoped(List.of("https://www.googleapis.com/auth/firebase.messaging"));
-                googleCredentials.refreshIfExpired();
-                accessToken = googleCredentials.getAccessToken().getTokenValue();
-                tokenExpiration = googleCredentials.getAccessToken().getExpirationTime().getTime() - 60_000; // -1 min
-            }
-        } catch (IOException e) {
-            log.error("Errore durante il caricamento del file di service account: {}", serviceAccountFile, e);
-            throw e;
+        for (FcmSendStatus status : FcmSendStatus.values()) {
+            sendTimers.put(status, Timer.builder("taf.fcm.send")
+                    .description("Latenza delle richieste di invio verso FCM")
+                    .tag("outcome", status.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
         }
-        return accessToken;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
     }
 
     // Invia la notifica
@@ -62,39 +97,22 @@ public class FcmNotificationServiceImpl implements FcmNotificationService {
             throws IOException {
         log.info("Inizio invio notifica a token: {}", targetToken);
 
-        String accessToken = getAccessToken();
-
-        Map<String, Object> notification = Map.of(
-                "title", title,
-                "body", body);
-
-        Map<String, Object> message = new HashMap<>();
-        message.put("token", targetToken);
-        message.put("notification", notification);
-        if (data != null && !data.isEmpty())
-            message.put("data", data);
-
-        Map<String, Object> payload = Map.of("message", message);
-
-        RequestBody requestBody = RequestBody.create(
-                gson.toJson(payload), MediaType.get("application/json"));
+        String accessToken = credentialProvider.getAccessToken();
+        byte[] messageSuffix = buildMessageSuffix(title, body, data);
 
-        Request request = new Request.Builder()
-                .url(fcmApiUrl)
-                .addHeader("Authorization", "Bearer " + accessToken)
-                .addHeader("Content-Type", "application/json")
-                .post(requestBody)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : "";
+        long start = System.nanoTime();
+        FcmSendStatus status = FcmSendStatus.FAILED;
+        try (Response response = client.newCall(buildRequest(accessToken, targetToken, messageSuffix)).execute()) {
+            String responseBody = response.body().string();
             log.info("Risposta da FCM: {}", responseBody);
             if (response.isSuccessful()) {
+                status = FcmSendStatus.SENT;
                 log.info("Notifica inviata correttamente.");
                 return true;
             } else {
                 log.error("Errore nell'invio della notifica FCM. Risposta: {}", responseBody);
-                if (responseBody.contains("UNREGISTERED") || responseBody.contains("INVALID_ARGUMENT")) {
+                if (isInvalidToken(response.code(), responseBody)) {
+                    status = FcmSendStatus.INVALID_TOKEN;
                     log.warn("Token non valido o non registrato.");
                 }
                 return false;
@@ -102,6 +120,144 @@ public class FcmNotificationServiceImpl implements FcmNotificationService {
         } catch (Exception e) {
             log.error("Errore durante l'invio della notifica FCM", e);
             throw e;
+        } finally {
+            recordSend(status, start);
+        }
+    }
+
+    // Invia la stessa notifica a più token: le richieste sono inviate in modo
+    // asincrono fino a maxInFlight contemporanee e il corpo comune del messaggio
+    // viene serializzato una sola volta per batch
+    @Override
+    public List<FcmSendResult> sendNotifications(List<String> targetTokens, String title, String body,
+            Map<String, String> data) throws IOException {
+        if (targetTokens == null || targetTokens.isEmpty()) {
+            return List.of();
+        }
+        log.info("Inizio invio batch FCM a {} token", targetTokens.size());
+
+        String accessToken = credentialProvider.getAccessToken();
+        byte[] messageSuffix = buildMessageSuffix(title, body, data);
+
+        FcmSendResult[] results = new FcmSendResult[targetTokens.size()];
+        CountDownLatch completed = new CountDownLatch(targetTokens.size());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            for (int i = 0; i < targetTokens.size(); i++) {
+                int index = i;
+                String token = targetTokens.get(i);
+                inFlight.acquire();
+                long start = System.nanoTime();
+                client.newCall(buildRequest(accessToken, token, messageSuffix)).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        results[index] = new FcmSendResult(token, FcmSendStatus.FAILED, 0, e.getMessage());
+                        recordSend(FcmSendStatus.FAILED, start);
+                        inFlight.release();
+                        completed.countDown();
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        try (response) {
+                            results[index] = toResult(token, response);
+                        } catch (IOException e) {
+                            results[index] = new FcmSendResult(token, FcmSendStatus.FAILED, response.code(),
+                                    e.getMessage());
+                        } finally {
+                            recordSend(results[index] != null ? results[index].getStatus() : FcmSendStatus.FAILED,
+                                    start);
+                            inFlight.release();
+                            completed.countDown();
+                        }
+                    }
+                });
+            }
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Invio batch FCM interrotto", e);
+        }
+
+        List<FcmSendResult> list = Arrays.asList(results);
+        long sent = list.stream().filter(r -> r.getStatus() == FcmSendStatus.SENT).count();
+        log.info("Batch FCM completato: {} inviate su {}", sent, list.size());
+        return list;
+    }
+
+    private void recordSend(FcmSendStatus status, long startNanos) {
+        sendTimers.get(status).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Request buildRequest(String accessToken, String targetToken, byte[] messageSuffix) {
+        byte[] token = gson.toJson(targetToken).getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[MESSAGE_PREFIX.length + token.length + messageSuffix.length];
+        System.arraycopy(MESSAGE_PREFIX, 0, payload, 0, MESSAGE_PREFIX.length);
+        System.arraycopy(token, 0, payload, MESSAGE_PREFIX.length, token.length);
+        System.arraycopy(messageSuffix, 0, payload, MESSAGE_PREFIX.length + token.length, messageSuffix.length);
+
+        return new Request.Builder()
+                .url(fcmApiUrl)
+                .addHeader("Authorization", "Bearer " + accessToken)
+                .post(RequestBody.create(payload, JSON))
+                .build();
+    }
+
+    // Parte del messaggio comune a tutti i destinatari: ,"notification":{...},"data":{...}}}
+    private byte[] buildMessageSuffix(String title, String body, Map<String, String> data) {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("title", title);
+        notification.put("body", body);
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("notification", notification);
+        if (data != null && !data.isEmpty())
+            message.put("data", data);
+
+        String json = gson.toJson(message);
+        return ("," + json.substring(1) + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private FcmSendResult toResult(String token, Response response) throws IOException {
+        if (response.isSuccessful()) {
+            return new FcmSendResult(token, FcmSendStatus.SENT, response.code(), null);
+        }
+        String responseBody = response.body().string();
+        FcmSendStatus status = isInvalidToken(response.code(), responseBody) ? FcmSendStatus.INVALID_TOKEN
+                : FcmSendStatus.FAILED;
+        return new FcmSendResult(token, status, response.code(), responseBody);
+    }
+
+    // Token da rimuovere: 404/UNREGISTERED, oppure INVALID_ARGUMENT solo se riferito al campo message.token.
+    // Un payload malformato risponde INVALID_ARGUMENT per ogni destinatario e non deve cancellare i token.
+    private boolean isInvalidToken(int code, String responseBody) {
+        if (code == 404 || responseBody.contains("UNREGISTERED")) {
+            return true;
+        }
+        return responseBody.contains("INVALID_ARGUMENT") && namesTokenField(responseBody);
+    }
+
+    private boolean namesTokenField(String responseBody) {
+        try {
+            JsonObject error = JsonParser.parseString(responseBody).getAsJsonObject().getAsJsonObject("error");
+            if (error == null || !(error.get("details") instanceof JsonArray details)) {
+                return false;
+            }
+            for (JsonElement detail : details) {
+                if (!detail.isJsonObject()
+                        || !(detail.getAsJsonObject().get("fieldViolations") instanceof JsonArray violations)) {
+                    continue;
+                }
+                for (JsonElement violation : violations) {
+                    if (violation.isJsonObject() && violation.getAsJsonObject().get("field") != null
+                            && TOKEN_FIELD.equals(violation.getAsJsonObject().get("field").getAsString())) {
+                        return true;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Risposta di errore FCM non interpretabile: {}", responseBody);
         }
+        return false;
     }
 }
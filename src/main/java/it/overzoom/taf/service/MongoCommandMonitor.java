@@ -0,0 +1,15 @@
+package it.overzoom.taf.service;
+
+import java.util.List;
+
+import it.overzoom.taf.dto.MongoLatencyDTO;
+import it.overzoom.taf.dto.SlowQueryDTO;
+
+public interface MongoCommandMonitor {
+
+    /** Latenze dei comandi per collection e operazione, dall'avvio. */
+    List<MongoLatencyDTO> getLatencies();
+
+    /** Forme di query più lente viste oltre la soglia, dalla più lenta. */
+    List<SlowQueryDTO> getSlowQueries();
+}
@@ -0,0 +1,263 @@
+package it.overzoom.taf.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import it.overzoom.taf.dto.MongoLatencyDTO;
+import it.overzoom.taf.dto.SlowQueryDTO;
+import it.overzoom.taf.utils.LatencyHistogram;
+import it.overzoom.taf.utils.QueryPlanUtils;
+
+/**
+ * Listener dei comandi del driver Mongo: vede ogni chiamata di MongoTemplate
+ * e dei repository. Registra le latenze per collection e operazione e tiene
+ * le forme di query più lente oltre la soglia, con il piano di explain
+ * catturato in background alla prima esecuzione lenta di ciascuna.
+ */
+@Service
+public class MongoCommandMonitorImpl implements MongoCommandMonitor, CommandListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoCommandMonitorImpl.class);
+    private static final ExecutorService EXPLAIN_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Comandi sui dati; handshake, autenticazione, sessioni ed explain non vengono misurati
+    private static final Set<String> TIMED_COMMANDS = Set.of("find", "getMore", "aggregate", "count", "distinct",
+            "insert", "update", "delete", "findAndModify", "bulkWrite");
+    // Letture di cui si può chiedere il piano ripetendo il comando dentro explain
+    private static final Set<String> EXPLAINABLE_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+    // Campi di sessione e di protocollo, da togliere prima dell'explain
+    private static final Set<String> SESSION_FIELDS = Set.of("$db", "lsid", "$clusterTime", "txnNumber",
+            "$readPreference", "autocommit", "startTransaction", "readConcern", "apiVersion", "apiStrict",
+            "apiDeprecationErrors");
+    // Paginazione e opzioni che non cambiano il piano, escluse dalla forma
+    private static final Set<String> PAGING_FIELDS = Set.of("batchSize", "limit", "skip", "singleBatch",
+            "maxTimeMS", "cursor", "comment", "allowDiskUse");
+
+    private record Operation(String collection, String operation) {
+    }
+
+    private record InFlight(Operation operation, String database, BsonDocument command) {
+    }
+
+    private final ObjectProvider<MongoClient> mongoClient;
+    private final long thresholdMicros;
+    private final int capacity;
+
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<Operation, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    // Forme lente per chiave; piena la capacità, una nuova forma sostituisce la più veloce se la supera
+    private final Map<String, SlowQuery> slowQueries = new HashMap<>();
+
+    // MongoClient arriva in modo pigro: il client stesso viene creato con questo listener
+    public MongoCommandMonitorImpl(ObjectProvider<MongoClient> mongoClient,
+            @Value("${mongo.slow-query.threshold-ms:200}") long thresholdMs,
+            @Value("${mongo.slow-query.capacity:50}") int capacity) {
+        this.mongoClient = mongoClient;
+        this.thresholdMicros = TimeUnit.MILLISECONDS.toMicros(thresholdMs);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String name = event.getCommandName();
+        if (!TIMED_COMMANDS.contains(name)) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        // Il documento del comando vale solo durante la callback: per le letture se ne tiene una copia
+        inFlight.put(event.getRequestId(), new InFlight(new Operation(collectionOf(name, command), name),
+                event.getDatabaseName(), EXPLAINABLE_COMMANDS.contains(name) ? command.clone() : null));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        complete(event.getRequestId(), event.getElapsedTime(TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        complete(event.getRequestId(), event.getElapsedTime(TimeUnit.MICROSECONDS));
+    }
+
+    private void complete(int requestId, long micros) {
+        InFlight call = inFlight.remove(requestId);
+        if (call == null) {
+            return;
+        }
+        latencies.computeIfAbsent(call.operation(), key -> new LatencyHistogram()).record(micros);
+        if (call.command() != null && micros >= thresholdMicros) {
+            recordSlow(call, micros);
+        }
+    }
+
+    private void recordSlow(InFlight call, long micros) {
+        BsonDocument shapeSource = new BsonDocument();
+        call.command().forEach((key, value) -> {
+            if (!SESSION_FIELDS.contains(key) && !PAGING_FIELDS.contains(key)) {
+                shapeSource.put(key, value);
+            }
+        });
+        String shape = QueryPlanUtils.shapeOf(shapeSource).toJson();
+        String key = call.operation() + " " + shape;
+
+        SlowQuery entry;
+        boolean first;
+        synchronized (slowQueries) {
+            entry = slowQueries.get(key);
+            first = entry == null;
+            if (first) {
+                if (slowQueries.size() >= capacity) {
+                    SlowQuery fastest = slowQueries.values().stream()
+                            .min(Comparator.comparingLong(SlowQuery::getMaxMicros))
+                            .orElseThrow();
+                    if (fastest.getMaxMicros() >= micros) {
+                        return;
+                    }
+                    slowQueries.remove(fastest.key);
+                }
+                entry = new SlowQuery(key, call.operation(), shape);
+                slowQueries.put(key, entry);
+            }
+            entry.record(micros);
+        }
+
+        if (first) {
+            log.warn("Query lenta su {} ({}): {} ms, forma {}", call.operation().collection(),
+                    call.operation().operation(), micros / 1000, shape);
+            SlowQuery target = entry;
+            EXPLAIN_EXECUTOR.execute(() -> explain(call, target));
+        }
+    }
+
+    private void explain(InFlight call, SlowQuery target) {
+        BsonDocument command = new BsonDocument();
+        call.command().forEach((key, value) -> {
+            if (!SESSION_FIELDS.contains(key)) {
+                command.put(key, value);
+            }
+        });
+        try {
+            Document result = mongoClient.getObject().getDatabase(call.database())
+                    .runCommand(new Document("explain", command).append("verbosity", "queryPlanner"));
+            Document plan = QueryPlanUtils.winningPlan(result);
+            if (plan != null) {
+                synchronized (slowQueries) {
+                    target.plan = plan;
+                    target.planStages = List.copyOf(QueryPlanUtils.stagesOf(plan));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Explain della query lenta su {} non riuscito: {}", call.operation().collection(),
+                    e.getMessage());
+        }
+    }
+
+    // Il nome della collection è il valore del comando, tranne per getMore che lo riporta a parte
+    private static String collectionOf(String name, BsonDocument command) {
+        BsonValue value = "getMore".equals(name) ? command.get("collection") : command.get(name);
+        return value instanceof BsonString collection ? collection.getValue() : "-";
+    }
+
+    @Override
+    public List<MongoLatencyDTO> getLatencies() {
+        List<MongoLatencyDTO> result = new ArrayList<>();
+        latencies.forEach((operation, histogram) -> {
+            MongoLatencyDTO dto = new MongoLatencyDTO();
+            dto.setCollection(operation.collection());
+            dto.setOperation(operation.operation());
+            dto.setCount(histogram.getCount());
+            dto.setMeanMillis(histogram.getMeanMillis());
+            dto.setP50Millis(histogram.percentileMillis(0.50));
+            dto.setP95Millis(histogram.percentileMillis(0.95));
+            dto.setP99Millis(histogram.percentileMillis(0.99));
+            dto.setMaxMillis(histogram.getMaxMillis());
+            dto.setBuckets(histogram.getBuckets());
+            result.add(dto);
+        });
+        result.sort(Comparator.comparing(MongoLatencyDTO::getCollection)
+                .thenComparing(MongoLatencyDTO::getOperation));
+        return result;
+    }
+
+    @Override
+    public List<SlowQueryDTO> getSlowQueries() {
+        List<SlowQueryDTO> result = new ArrayList<>();
+        synchronized (slowQueries) {
+            for (SlowQuery entry : slowQueries.values()) {
+                result.add(entry.toDto());
+            }
+        }
+        result.sort(Comparator.comparingDouble(SlowQueryDTO::getMaxMillis).reversed());
+        return result;
+    }
+
+    // Statistiche di una forma lenta; accesso sincronizzato su slowQueries
+    private static final class SlowQuery {
+
+        private final String key;
+        private final Operation operation;
+        private final String shape;
+        private long count;
+        private long maxMicros;
+        private long lastMicros;
+        private Instant lastSeen;
+        private Document plan;
+        private List<String> planStages;
+
+        SlowQuery(String key, Operation operation, String shape) {
+            this.key = key;
+            this.operation = operation;
+            this.shape = shape;
+        }
+
+        void record(long micros) {
+            count++;
+            maxMicros = Math.max(maxMicros, micros);
+            lastMicros = micros;
+            lastSeen = Instant.now();
+        }
+
+        long getMaxMicros() {
+            return maxMicros;
+        }
+
+        SlowQueryDTO toDto() {
+            SlowQueryDTO dto = new SlowQueryDTO();
+            dto.setCollection(operation.collection());
+            dto.setOperation(operation.operation());
+            dto.setShape(shape);
+            dto.setCount(count);
+            dto.setMaxMillis(maxMicros / 1000.0);
+            dto.setLastMillis(lastMicros / 1000.0);
+            dto.setLastSeen(lastSeen);
+            dto.setPlanStages(planStages);
+            dto.setPlan(plan);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package it.overzoom.taf.service;
+
+import java.util.Optional;
+
+import it.overzoom.taf.model.Municipal;
+
+public interface MunicipalRegistry {
+
+    Optional<Municipal> findById(String id);
+
+    Optional<Municipal> findByDomain(String domain);
+
+    Optional<Municipal> findByCityAndProvince(String city, String province);
+
+    Optional<Municipal> getDefault();
+
+    Optional<Municipal> findByLocation(double latitude, double longitude);
+
+    void put(Municipal municipal);
+
+    void remove(String id);
+
+    void reload();
+}
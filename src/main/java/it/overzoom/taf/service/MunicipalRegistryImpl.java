@@ -0,0 +1,166 @@
+package it.overzoom.taf.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.geo.GeoJsonLineString;
+import org.springframework.data.mongodb.core.geo.GeoJsonMultiPolygon;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import it.overzoom.taf.model.Municipal;
+import it.overzoom.taf.repository.MunicipalRepository;
+import it.overzoom.taf.utils.PolygonGridIndex;
+
+/**
+ * Copia in memoria di tutti i comuni, indicizzata per id, dominio,
+ * città/provincia e confine (griglia point-in-polygon). Le letture usano uno snapshot immutabile pubblicato tramite
+ * campo volatile; le scritture di MunicipalServiceImpl e il reload periodico
+ * ne creano uno nuovo. Le istanze restituite sono condivise e non vanno
+ * modificate.
+ */
+@Service
+public class MunicipalRegistryImpl implements MunicipalRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MunicipalRegistryImpl.class);
+
+    private final MunicipalRepository municipalRepository;
+    private final String defaultCity;
+    private final String defaultProvince;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public MunicipalRegistryImpl(MunicipalRepository municipalRepository,
+            @Value("${municipal.default.city:Trani}") String defaultCity,
+            @Value("${municipal.default.province:BT}") String defaultProvince) {
+        this.municipalRepository = municipalRepository;
+        this.defaultCity = defaultCity;
+        this.defaultProvince = defaultProvince;
+    }
+
+    @Override
+    public Optional<Municipal> findById(String id) {
+        return Optional.ofNullable(id).map(current().byId::get);
+    }
+
+    @Override
+    public Optional<Municipal> findByDomain(String domain) {
+        return Optional.ofNullable(domain).map(current().byDomain::get);
+    }
+
+    @Override
+    public Optional<Municipal> findByCityAndProvince(String city, String province) {
+        return Optional.ofNullable(current().byCityAndProvince.get(cityKey(city, province)));
+    }
+
+    @Override
+    public Optional<Municipal> getDefault() {
+        return findByCityAndProvince(defaultCity, defaultProvince);
+    }
+
+    @Override
+    public Optional<Municipal> findByLocation(double latitude, double longitude) {
+        return current().byLocation.find(latitude, longitude);
+    }
+
+    @Override
+    public void put(Municipal municipal) {
+        synchronized (writeLock) {
+            Map<String, Municipal> byId = new HashMap<>(current().byId);
+            byId.put(municipal.getId(), municipal);
+            snapshot = new Snapshot(byId.values());
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        synchronized (writeLock) {
+            Map<String, Municipal> byId = new HashMap<>(current().byId);
+            byId.remove(id);
+            snapshot = new Snapshot(byId.values());
+        }
+    }
+
+    // Riallinea lo snapshot con il database, anche per le modifiche fatte da altre istanze
+    @Override
+    @Scheduled(fixedDelayString = "${municipal.registry.reload-interval-ms:300000}")
+    public void reload() {
+        synchronized (writeLock) {
+            snapshot = new Snapshot(municipalRepository.findAll());
+            log.debug("Registro comuni ricaricato: {} comuni, {} con confine", snapshot.byId.size(),
+                    snapshot.byLocation.size());
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (writeLock) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static String cityKey(String city, String province) {
+        return city + "|" + province;
+    }
+
+    // Converte il MultiPolygon GeoJSON nel formato [poligono][anello][punto][lon, lat] dell'indice
+    private static double[][][][] toCoordinates(GeoJsonMultiPolygon boundary) {
+        List<GeoJsonPolygon> polygons = boundary.getCoordinates();
+        double[][][][] coordinates = new double[polygons.size()][][][];
+        for (int p = 0; p < polygons.size(); p++) {
+            List<GeoJsonLineString> rings = polygons.get(p).getCoordinates();
+            coordinates[p] = new double[rings.size()][][];
+            for (int r = 0; r < rings.size(); r++) {
+                List<Point> points = rings.get(r).getCoordinates();
+                coordinates[p][r] = new double[points.size()][];
+                for (int i = 0; i < points.size(); i++) {
+                    coordinates[p][r][i] = new double[] { points.get(i).getX(), points.get(i).getY() };
+                }
+            }
+        }
+        return coordinates;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, Municipal> byId;
+        private final Map<String, Municipal> byDomain;
+        private final Map<String, Municipal> byCityAndProvince;
+        private final PolygonGridIndex<Municipal> byLocation;
+
+        private Snapshot(Collection<Municipal> municipals) {
+            Map<String, Municipal> ids = new HashMap<>();
+            Map<String, Municipal> domains = new HashMap<>();
+            Map<String, Municipal> cities = new HashMap<>();
+            PolygonGridIndex.Builder<Municipal> locations = PolygonGridIndex.builder();
+            for (Municipal municipal : municipals) {
+                if (municipal.getBoundary() != null) {
+                    locations.add(municipal, toCoordinates(municipal.getBoundary()));
+                }
+                ids.put(municipal.getId(), municipal);
+                if (municipal.getDomain() != null) {
+                    domains.put(municipal.getDomain(), municipal);
+                }
+                cities.putIfAbsent(cityKey(municipal.getCity(), municipal.getProvince()), municipal);
+            }
+            this.byId = Map.copyOf(ids);
+            this.byDomain = Map.copyOf(domains);
+            this.byCityAndProvince = Map.copyOf(cities);
+            this.byLocation = locations.build();
+        }
+    }
+}
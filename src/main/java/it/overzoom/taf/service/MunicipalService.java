@@ -1,18 +1,21 @@
 package it.overzoom.taf.service;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
+import it.overzoom.taf.exception.InvalidBoundaryException;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.Municipal;
+import it.overzoom.taf.utils.FieldProjection;
 
 public interface MunicipalService {
 
-    Page<Municipal> findAll(Pageable pageable);
+    Page<Municipal> findAll(Pageable pageable, FieldProjection projection);
 
     Optional<Municipal> findById(String id);
 
@@ -37,4 +40,7 @@ public interface MunicipalService {
     Municipal uploadCover(String id, MultipartFile file) throws IOException, ResourceNotFoundException;
 
     Municipal uploadIcon(String id, MultipartFile file) throws IOException, ResourceNotFoundException;
+
+    Municipal updateBoundary(String id, List<List<List<List<Double>>>> coordinates)
+            throws ResourceNotFoundException, InvalidBoundaryException;
 }
@@ -1,19 +1,29 @@
 package it.overzoom.taf.service;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonMultiPolygon;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import it.overzoom.taf.exception.InvalidBoundaryException;
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.Municipal;
 import it.overzoom.taf.repository.MunicipalRepository;
 import it.overzoom.taf.type.EntityType;
 import it.overzoom.taf.type.PhotoType;
+import it.overzoom.taf.utils.FieldProjection;
 
 @Service
 public class MunicipalServiceImpl implements MunicipalService {
@@ -22,22 +32,35 @@ public class MunicipalServiceImpl implements MunicipalService {
 
     private final MunicipalRepository municipalRepository;
     private final PhotoService photoService;
+    private final MunicipalRegistry municipalRegistry;
+    private final MongoTemplate mongoTemplate;
 
-    public MunicipalServiceImpl(MunicipalRepository municipalRepository, PhotoService photoService) {
+    public MunicipalServiceImpl(MunicipalRepository municipalRepository, PhotoService photoService,
+            MunicipalRegistry municipalRegistry, MongoTemplate mongoTemplate) {
         this.municipalRepository = municipalRepository;
         this.photoService = photoService;
+        this.municipalRegistry = municipalRegistry;
+        this.mongoTemplate = mongoTemplate;
     }
 
-    public Page<Municipal> findAll(Pageable pageable) {
+    public Page<Municipal> findAll(Pageable pageable, FieldProjection projection) {
         log.info("Recuperando tutti i comuni con paginazione...");
-        return municipalRepository.findAll(pageable);
+        if (projection.isAll()) {
+            return municipalRepository.findAll(pageable);
+        }
+        // Con la proiezione i confini, il campo più pesante, non vengono letti
+        Query query = projection.applyTo(new Query().with(pageable));
+        return PageableExecutionUtils.getPage(mongoTemplate.find(query, Municipal.class), pageable,
+                () -> mongoTemplate.count(new Query(), Municipal.class));
     }
 
     public Optional<Municipal> findById(String id) {
         log.info("Ricerca del comune con ID: {}", id);
-        return municipalRepository.findById(id);
+        return municipalRegistry.findById(id);
     }
 
+    // Usato per validare le scritture: legge da Mongo, il registro può non avere ancora i comuni creati da
+    // altre istanze
     public boolean existsById(String id) {
         log.info("Verifica se il comune con ID: {} esiste...", id);
         return municipalRepository.existsById(id);
@@ -46,7 +69,9 @@ public class MunicipalServiceImpl implements MunicipalService {
     @Transactional
     public Municipal create(Municipal municipal) {
         log.info("Creazione del nuovo comune: {}", municipal.getCity());
-        return municipalRepository.save(municipal);
+        Municipal created = municipalRepository.save(municipal);
+        municipalRegistry.put(created);
+        return created;
     }
 
     @Transactional
@@ -59,7 +84,8 @@ public class MunicipalServiceImpl implements MunicipalService {
             existing.setDomain(municipal.getDomain());
             existing.setDescription(municipal.getDescription());
             return existing;
-        }).map(municipalRepository::save);
+        }).map(municipalRepository::save)
+                .map(this::publish);
     }
 
     @Transactional
@@ -82,7 +108,8 @@ public class MunicipalServiceImpl implements MunicipalService {
                 existing.setDescription(municipal.getDescription());
             }
             return existing;
-        }).map(municipalRepository::save);
+        }).map(municipalRepository::save)
+                .map(this::publish);
     }
 
     // delete
@@ -90,16 +117,33 @@ public class MunicipalServiceImpl implements MunicipalService {
     public void deleteById(String id) {
         log.info("Cancellazione del comune con ID: {}", id);
         municipalRepository.deleteById(id);
+        municipalRegistry.remove(id);
     }
 
     public Optional<Municipal> findByDomain(String domain) {
         log.info("Ricerca comune per dominio: {}", domain);
-        return municipalRepository.findByDomain(domain);
+        return municipalRegistry.findByDomain(domain);
     }
 
     public Optional<Municipal> findByGeolocation(double latitude, double longitude) {
         log.info("Ricerca comune per geolocalizzazione lat: {} lon: {}", latitude, longitude);
-        return municipalRepository.findByCityAndProvince("Trani", "BT"); // Default city
+        Optional<Municipal> municipal = municipalRegistry.findByLocation(latitude, longitude);
+        if (municipal.isEmpty()) {
+            // Il registro può non avere ancora i confini scritti da un'altra istanza
+            municipal = municipalRepository.findByBoundaryContaining(latitude, longitude).stream().findFirst();
+        }
+        return municipal.or(municipalRegistry::getDefault); // Default city
+    }
+
+    @Transactional
+    public Municipal updateBoundary(String id, List<List<List<List<Double>>>> coordinates)
+            throws ResourceNotFoundException, InvalidBoundaryException {
+        log.info("Aggiornamento del confine del comune con ID: {}", id);
+        Municipal municipal = municipalRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Comune non trovato con ID: " + id));
+
+        municipal.setBoundary(toMultiPolygon(coordinates));
+        return publish(municipalRepository.save(municipal));
     }
 
     @Transactional
@@ -110,7 +154,7 @@ public class MunicipalServiceImpl implements MunicipalService {
 
         String path = photoService.uploadPhoto(EntityType.MUNICIPAL, id, file, PhotoType.LOGO);
         municipal.setLogo(path);
-        municipalRepository.save(municipal);
+        publish(municipalRepository.save(municipal));
         log.info("Logo caricato con successo per il comune con ID: {}", id);
         return municipal;
     }
@@ -123,7 +167,7 @@ public class MunicipalServiceImpl implements MunicipalService {
 
         String path = photoService.uploadPhoto(EntityType.MUNICIPAL, id, file, PhotoType.COVER);
         municipal.setCover(path);
-        municipalRepository.save(municipal);
+        publish(municipalRepository.save(municipal));
         log.info("Copertura caricata con successo per il comune con ID: {}", id);
         return municipal;
     }
@@ -136,7 +180,7 @@ public class MunicipalServiceImpl implements MunicipalService {
 
         String path = photoService.uploadPhoto(EntityType.MUNICIPAL, id, file, PhotoType.ICON);
         municipal.setIcon(path);
-        municipalRepository.save(municipal);
+        publish(municipalRepository.save(municipal));
         log.info("Icona caricata con successo per il comune con ID: {}", id);
         return municipal;
     }
@@ -144,6 +188,46 @@ public class MunicipalServiceImpl implements MunicipalService {
     @Override
     public Optional<Municipal> getDefaultMunicipal() {
         log.info("Recupero del comune predefinito...");
-        return municipalRepository.findByCityAndProvince("Trani", "BT");
+        return municipalRegistry.getDefault();
+    }
+
+    // Coordinate di un MultiPolygon GeoJSON: poligoni, anelli (il primo esterno), punti [lon, lat]
+    private GeoJsonMultiPolygon toMultiPolygon(List<List<List<List<Double>>>> coordinates)
+            throws InvalidBoundaryException {
+        if (coordinates == null || coordinates.isEmpty()) {
+            throw new InvalidBoundaryException("Il confine deve contenere almeno un poligono.");
+        }
+        List<GeoJsonPolygon> polygons = new ArrayList<>();
+        for (List<List<List<Double>>> polygon : coordinates) {
+            if (polygon.isEmpty()) {
+                throw new InvalidBoundaryException("Ogni poligono deve avere un anello esterno.");
+            }
+            GeoJsonPolygon geoJsonPolygon = new GeoJsonPolygon(toRing(polygon.get(0)));
+            for (List<List<Double>> hole : polygon.subList(1, polygon.size())) {
+                geoJsonPolygon = geoJsonPolygon.withInnerRing(toRing(hole));
+            }
+            polygons.add(geoJsonPolygon);
+        }
+        return new GeoJsonMultiPolygon(polygons);
+    }
+
+    private List<Point> toRing(List<List<Double>> ring) throws InvalidBoundaryException {
+        if (ring.size() < 4 || !ring.get(0).equals(ring.get(ring.size() - 1))) {
+            throw new InvalidBoundaryException("Ogni anello deve essere chiuso e avere almeno 4 punti.");
+        }
+        List<Point> points = new ArrayList<>(ring.size());
+        for (List<Double> position : ring) {
+            if (position.size() < 2 || Math.abs(position.get(0)) > 180 || Math.abs(position.get(1)) > 90) {
+                throw new InvalidBoundaryException("Coordinate non valide: " + position);
+            }
+            points.add(new Point(position.get(0), position.get(1)));
+        }
+        return points;
+    }
+
+    // Rende visibile la modifica alle letture servite dal registro
+    private Municipal publish(Municipal municipal) {
+        municipalRegistry.put(municipal);
+        return municipal;
     }
 }
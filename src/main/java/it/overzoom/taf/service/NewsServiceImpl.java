@@ -18,28 +18,27 @@ import org.springframework.web.multipart.MultipartFile;
 
 import it.overzoom.taf.exception.ResourceNotFoundException;
 import it.overzoom.taf.model.News;
-import it.overzoom.taf.model.User;
 import it.overzoom.taf.repository.NewsRepository;
-import it.overzoom.taf.repository.UserRepository;
 import it.overzoom.taf.type.EntityType;
 import it.overzoom.taf.type.NotificationType;
 import it.overzoom.taf.type.PhotoType;
+import it.overzoom.taf.type.SuggestType;
 
 @Service
 public class NewsServiceImpl implements NewsService {
 
     private final NewsRepository newsRepository;
-    private final NotificationService notificationService;
-    private final UserRepository userRepository;
+    private final PushFanoutService pushFanoutService;
     private final PhotoService photoService;
+    private final SuggestIndex suggestIndex;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NewsServiceImpl.class);
 
-    public NewsServiceImpl(NewsRepository newsRepository, NotificationService notificationService,
-            UserRepository userRepository, PhotoService photoService) {
+    public NewsServiceImpl(NewsRepository newsRepository, PushFanoutService pushFanoutService,
+            PhotoService photoService, SuggestIndex suggestIndex) {
         this.newsRepository = newsRepository;
-        this.notificationService = notificationService;
-        this.userRepository = userRepository;
+        this.pushFanoutService = pushFanoutService;
         this.photoService = photoService;
+        this.suggestIndex = suggestIndex;
     }
 
     @Override
@@ -64,20 +63,11 @@ public class NewsServiceImpl implements NewsService {
     @Transactional
     public News create(News news) {
         log.info("Creating news: {}", news);
-        news = newsRepository.save(news);
-
-        // Notifica push solo agli utenti iscritti
-        List<User> subscribedUsers = userRepository.findByNotificationTypesContaining(NotificationType.NEWS);
-        log.info("Sending notifications to subscribed users: {}", subscribedUsers.size());
+        news = save(news);
 
-        // invia notifica push a ciascun utente
-        for (User user : subscribedUsers) {
-            if (Arrays.asList(user.getMunicipalityIds()).contains(news.getMunicipalityId())) {
-                notificationService.sendPushToUser(user.getId(), "Nuova notizia", news.getTitle(),
-                        Map.of("newsId", news.getId(), "type", NotificationType.NEWS.name()));
-                log.info("Notification sent to user {} for news ID {}", user.getId(), news.getId());
-            }
-        }
+        // Notifica push agli utenti iscritti del comune, inviata in modo asincrono
+        pushFanoutService.submit(NotificationType.NEWS, news.getMunicipalityId(), "Nuova notizia", news.getTitle(),
+                Map.of("newsId", news.getId(), "type", NotificationType.NEWS.name()));
 
         return news;
     }
@@ -93,7 +83,7 @@ public class NewsServiceImpl implements NewsService {
             existing.setPublicationDate(news.getPublicationDate());
             existing.setTags(news.getTags());
             return existing;
-        }).map(newsRepository::save);
+        }).map(this::save);
     }
 
     @Override
@@ -122,7 +112,7 @@ public class NewsServiceImpl implements NewsService {
                 existing.setTags(news.getTags());
             }
             return existing;
-        }).map(newsRepository::save);
+        }).map(this::save);
     }
 
     @Override
@@ -130,6 +120,13 @@ public class NewsServiceImpl implements NewsService {
     public void deleteById(String id) {
         log.info("Deleting news with ID: {}", id);
         newsRepository.deleteById(id);
+        suggestIndex.remove(SuggestType.NEWS, id);
+    }
+
+    private News save(News news) {
+        news = newsRepository.save(news);
+        suggestIndex.put(news);
+        return news;
     }
 
     @Transactional
@@ -0,0 +1,14 @@
+package it.overzoom.taf.service;
+
+import java.util.Map;
+
+import it.overzoom.taf.type.OutboxStatus;
+
+public interface NotificationOutboxService {
+
+    boolean enqueue(String userId, String title, String body, Map<String, String> data, String idempotencyKey);
+
+    int drain();
+
+    Map<OutboxStatus, Long> countByStatus();
+}
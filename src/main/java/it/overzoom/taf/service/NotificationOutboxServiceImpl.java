@@ -0,0 +1,314 @@
+package it.overzoom.taf.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import it.overzoom.taf.dto.FcmSendResult;
+import it.overzoom.taf.model.NotificationOutbox;
+import it.overzoom.taf.model.User;
+import it.overzoom.taf.repository.NotificationOutboxRepository;
+import it.overzoom.taf.type.FcmSendStatus;
+import it.overzoom.taf.type.OutboxStatus;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Outbox persistente delle notifiche push. Ogni invio è un documento nella
+ * collection notification_outbox; lo scheduler lo prende in carico con un
+ * lease a tempo, così più worker e più istanze dell'applicazione possono
+ * smaltire la coda senza inviare due volte la stessa notifica. Gli errori
+ * transitori vengono ritentati con backoff esponenziale, quelli definitivi
+ * portano la notifica nello stato DEAD.
+ */
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutboxServiceImpl.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationOutboxRepository outboxRepository;
+    private final FcmNotificationService fcmNotificationService;
+
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ExecutorService workerExecutor;
+
+    public NotificationOutboxServiceImpl(MongoTemplate mongoTemplate, NotificationOutboxRepository outboxRepository,
+            FcmNotificationService fcmNotificationService,
+            @Value("${notification.outbox.workers:4}") int workers,
+            @Value("${notification.outbox.batch-size:200}") int batchSize,
+            @Value("${notification.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${notification.outbox.lease-seconds:60}") long leaseSeconds,
+            @Value("${notification.outbox.base-backoff-seconds:5}") long baseBackoffSeconds,
+            @Value("${notification.outbox.max-backoff-seconds:3600}") long maxBackoffSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.outboxRepository = outboxRepository;
+        this.fcmNotificationService = fcmNotificationService;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.baseBackoff = Duration.ofSeconds(baseBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.workerExecutor = Executors.newFixedThreadPool(workers,
+                Thread.ofVirtual().name("notification-outbox-", 0).factory());
+    }
+
+    @Override
+    public boolean enqueue(String userId, String title, String body, Map<String, String> data,
+            String idempotencyKey) {
+        NotificationOutbox outbox = new NotificationOutbox();
+        outbox.setUserId(userId);
+        outbox.setTitle(title);
+        outbox.setBody(body);
+        outbox.setData(data);
+        outbox.setIdempotencyKey(idempotencyKey);
+        outbox.setStatus(OutboxStatus.PENDING);
+        outbox.setNextAttemptAt(Instant.now());
+        outbox.setCreated(Instant.now());
+        try {
+            mongoTemplate.insert(outbox);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.info("Notifica con chiave di idempotenza {} già presente nell'outbox", idempotencyKey);
+            return false;
+        }
+    }
+
+    @Override
+    public Map<OutboxStatus, Long> countByStatus() {
+        Map<OutboxStatus, Long> counts = new EnumMap<>(OutboxStatus.class);
+        for (OutboxStatus status : OutboxStatus.values()) {
+            counts.put(status, outboxRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    // Ogni worker prende in carico un batch; si prosegue finché i batch tornano pieni
+    @Override
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval-ms:2000}")
+    public int drain() {
+        int total = 0;
+        int processed;
+        do {
+            List<Future<Integer>> rounds = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                rounds.add(workerExecutor.submit(this::drainBatch));
+            }
+            processed = 0;
+            for (Future<Integer> round : rounds) {
+                try {
+                    processed += round.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return total + processed;
+                } catch (ExecutionException e) {
+                    log.error("Errore durante lo smaltimento dell'outbox: {}", e.getCause().getMessage(),
+                            e.getCause());
+                }
+            }
+            total += processed;
+        } while (processed == workers * batchSize);
+        if (total > 0) {
+            log.info("Outbox notifiche: {} notifiche elaborate", total);
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workerExecutor.shutdown();
+        workerExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private int drainBatch() {
+        String claim = instanceId + ":" + UUID.randomUUID();
+        List<NotificationOutbox> claimed = claim(claim);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, String> tokens = resolveTokens(claimed);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationOutbox.class);
+        List<String> invalidTokens = new ArrayList<>();
+
+        // Le notifiche con lo stesso contenuto viaggiano nello stesso batch FCM
+        Map<List<Object>, List<NotificationOutbox>> groups = claimed.stream()
+                .collect(Collectors.groupingBy(o -> Arrays.asList(o.getTitle(), o.getBody(), o.getData()),
+                        LinkedHashMap::new, Collectors.toList()));
+
+        for (List<NotificationOutbox> group : groups.values()) {
+            List<NotificationOutbox> sendable = new ArrayList<>(group.size());
+            List<String> groupTokens = new ArrayList<>(group.size());
+            for (NotificationOutbox outbox : group) {
+                String token = tokens.get(outbox.getUserId());
+                if (token == null) {
+                    markDead(bulk, outbox, claim, "FcmToken non presente per l'utente");
+                } else {
+                    sendable.add(outbox);
+                    groupTokens.add(token);
+                }
+            }
+            if (sendable.isEmpty()) {
+                continue;
+            }
+
+            NotificationOutbox first = sendable.get(0);
+            List<FcmSendResult> results;
+            try {
+                results = fcmNotificationService.sendNotifications(groupTokens, first.getTitle(), first.getBody(),
+                        first.getData());
+            } catch (IOException e) {
+                sendable.forEach(outbox -> markRetry(bulk, outbox, claim, e.getMessage()));
+                continue;
+            }
+
+            for (int i = 0; i < sendable.size(); i++) {
+                NotificationOutbox outbox = sendable.get(i);
+                FcmSendResult result = results.get(i);
+                if (result.getStatus() == FcmSendStatus.SENT) {
+                    markSent(bulk, outbox, claim);
+                } else if (result.getStatus() == FcmSendStatus.INVALID_TOKEN) {
+                    invalidTokens.add(result.getToken());
+                    markDead(bulk, outbox, claim, result.getError());
+                } else {
+                    markRetry(bulk, outbox, claim, result.getError());
+                }
+            }
+        }
+
+        bulk.execute();
+        clearTokens(invalidTokens);
+        return claimed.size();
+    }
+
+    // Presa in carico a lease: si individuano i candidati, si marcano con un
+    // identificativo univoco solo se ancora disponibili e si rileggono quelli
+    // effettivamente ottenuti da questo worker
+    private List<NotificationOutbox> claim(String claim) {
+        Instant now = Instant.now();
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("status").is(OutboxStatus.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(OutboxStatus.IN_PROGRESS).and("leaseUntil").lt(now));
+
+        Query candidates = Query.query(claimable).with(Sort.by("nextAttemptAt")).limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, NotificationOutbox.class).stream()
+                .map(NotificationOutbox::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).andOperator(claimable)),
+                new Update()
+                        .set("status", OutboxStatus.IN_PROGRESS)
+                        .set("leaseOwner", claim)
+                        .set("leaseUntil", now.plus(lease)),
+                NotificationOutbox.class);
+
+        return mongoTemplate.find(Query.query(Criteria.where("leaseOwner").is(claim)), NotificationOutbox.class);
+    }
+
+    // Il token viene letto al momento dell'invio, così un nuovo token registrato
+    // dall'utente dopo l'accodamento viene usato per i tentativi successivi
+    private Map<String, String> resolveTokens(List<NotificationOutbox> claimed) {
+        List<String> userIds = claimed.stream().map(NotificationOutbox::getUserId).distinct().toList();
+        Query query = Query.query(Criteria.where("_id").in(userIds).and("fcmToken").nin(null, ""));
+        query.fields().include("_id").include("fcmToken");
+        return mongoTemplate.find(query, User.class).stream()
+                .collect(Collectors.toMap(User::getId, User::getFcmToken));
+    }
+
+    private void markSent(BulkOperations bulk, NotificationOutbox outbox, String claim) {
+        bulk.updateOne(leased(outbox, claim), new Update()
+                .set("status", OutboxStatus.SENT)
+                .set("sentAt", Instant.now())
+                .inc("attempts", 1)
+                .unset("leaseOwner")
+                .unset("leaseUntil")
+                .unset("lastError"));
+    }
+
+    private void markRetry(BulkOperations bulk, NotificationOutbox outbox, String claim, String error) {
+        int attempts = outbox.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            markDead(bulk, outbox, claim, error);
+            return;
+        }
+        bulk.updateOne(leased(outbox, claim), new Update()
+                .set("status", OutboxStatus.PENDING)
+                .set("attempts", attempts)
+                .set("nextAttemptAt", Instant.now().plus(backoff(attempts)))
+                .set("lastError", error)
+                .unset("leaseOwner")
+                .unset("leaseUntil"));
+    }
+
+    private void markDead(BulkOperations bulk, NotificationOutbox outbox, String claim, String error) {
+        log.warn("Notifica {} per l'utente {} spostata in DEAD: {}", outbox.getId(), outbox.getUserId(), error);
+        bulk.updateOne(leased(outbox, claim), new Update()
+                .set("status", OutboxStatus.DEAD)
+                .inc("attempts", 1)
+                .set("lastError", error)
+                .unset("leaseOwner")
+                .unset("leaseUntil"));
+    }
+
+    // L'aggiornamento vale solo se il lease è ancora di questo worker
+    private Query leased(NotificationOutbox outbox, String claim) {
+        return Query.query(Criteria.where("_id").is(outbox.getId()).and("leaseOwner").is(claim));
+    }
+
+    // Backoff esponenziale con jitter: base * 2^(tentativi-1), al massimo maxBackoff
+    private Duration backoff(int attempts) {
+        long base = baseBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long jitter = ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+        return Duration.ofMillis(capped / 2 + jitter);
+    }
+
+    private void clearTokens(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("fcmToken").in(tokens)),
+                new Update().unset("fcmToken"), User.class);
+        log.warn("FcmToken rimossi per {} token rifiutati da FCM", tokens.size());
+    }
+}
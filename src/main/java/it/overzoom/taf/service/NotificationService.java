@@ -24,5 +24,7 @@ public interface NotificationService {
 
     void deleteById(String id);
 
-    void sendPushToUser(String userId, String title, String body, Map<String, String> data);
+    // La chiave deve essere stabile tra i tentativi (origine, destinatario, evento scatenante): l'outbox scarta i
+    // duplicati con la stessa chiave
+    void sendPushToUser(String userId, String title, String body, Map<String, String> data, String idempotencyKey);
 }
@@ -1,6 +1,5 @@
 package it.overzoom.taf.service;
 
-import java.io.IOException;
 import java.util.Map;
 import java.util.Optional;
 
@@ -13,7 +12,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import it.overzoom.taf.model.Notification;
 import it.overzoom.taf.repository.NotificationRepository;
-import it.overzoom.taf.repository.UserRepository;
 
 @Service
 public class NotificationServiceImpl implements NotificationService {
@@ -21,14 +19,12 @@ public class NotificationServiceImpl implements NotificationService {
     private static final Logger log = LoggerFactory.getLogger(NotificationServiceImpl.class);
 
     private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
-    private final FcmNotificationService fcmNotificationService;
+    private final NotificationOutboxService notificationOutboxService;
 
-    public NotificationServiceImpl(NotificationRepository notificationRepository, UserRepository userRepository,
-            FcmNotificationService fcmNotificationService) {
+    public NotificationServiceImpl(NotificationRepository notificationRepository,
+            NotificationOutboxService notificationOutboxService) {
         this.notificationRepository = notificationRepository;
-        this.userRepository = userRepository;
-        this.fcmNotificationService = fcmNotificationService;
+        this.notificationOutboxService = notificationOutboxService;
     }
 
     @Override
@@ -109,31 +105,9 @@ public class NotificationServiceImpl implements NotificationService {
     }
 
     @Override
-    public void sendPushToUser(String userId, String title, String body, Map<String, String> data) {
-        log.info("Invio notifica push all'utente con ID: {}", userId);
-        userRepository.findById(userId).ifPresent(user -> {
-            String fcmToken = user.getFcmToken();
-            if (fcmToken == null || fcmToken.isEmpty()) {
-                log.warn("FcmToken non trovato per l'utente con ID: {}", userId);
-                return;
-            }
-
-            try {
-                boolean sent = fcmNotificationService.sendNotification(fcmToken, title, body, data);
-                if (!sent) {
-                    log.warn("Invio FCM fallito per utente {} (token: {})", userId, fcmToken);
-                    user.setFcmToken(null);
-                    userRepository.save(user);
-                } else {
-                    log.info("Notifica FCM inviata con successo all'utente {}", userId);
-                }
-            } catch (IOException ex) {
-                user.setFcmToken(null);
-                userRepository.save(user);
-                log.warn("FcmToken rimosso per user {} a causa di un errore: {}", userId, ex.getMessage());
-            } catch (Exception ex) {
-                log.error("Errore durante l'invio della notifica push a {}: {}", userId, ex.getMessage(), ex);
-            }
-        });
+    public void sendPushToUser(String userId, String title, String body, Map<String, String> data,
+            String idempotencyKey) {
+        log.info("Accodamento notifica push per l'utente con ID: {}", userId);
+        notificationOutboxService.enqueue(userId, title, body, data, idempotencyKey);
     }
 }
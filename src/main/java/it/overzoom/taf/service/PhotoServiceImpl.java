@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +14,9 @@ import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import it.overzoom.taf.type.EntityType;
 import it.overzoom.taf.type.PhotoType;
 
@@ -20,10 +25,16 @@ public class PhotoServiceImpl implements PhotoService {
 
     private static final Logger log = LoggerFactory.getLogger(PhotoServiceImpl.class);
     private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, UploadMeters> uploadMeters = new ConcurrentHashMap<>();
     private static final Set<String> ALLOWED_EXTENSIONS = Set.of("jpg", "jpeg", "png");
 
-    public PhotoServiceImpl(Environment environment) {
+    private record UploadMeters(Timer duration, DistributionSummary size) {
+    }
+
+    public PhotoServiceImpl(Environment environment, MeterRegistry meterRegistry) {
         this.environment = environment;
+        this.meterRegistry = meterRegistry;
     }
 
     public String getBaseUploadPath() {
@@ -50,17 +61,42 @@ public class PhotoServiceImpl implements PhotoService {
             filename = photoType.name().toLowerCase() + "_" + entityId + "." + extension;
         }
 
+        Timer.Sample sample = Timer.start(meterRegistry);
         Path fullDir = Paths.get(uploadPath, entityType.name().toLowerCase(), entityId);
         Files.createDirectories(fullDir);
 
         Path fullPath = fullDir.resolve(filename);
         file.transferTo(fullPath.toFile());
+        recordUpload(sample, entityType, photoType, file.getSize());
 
         String relativePath = entityType.name().toLowerCase() + "/" + entityId + "/" + filename;
         log.info("Foto caricata con successo: {}", relativePath);
         return relativePath;
     }
 
+    // Durata della scrittura su disco e dimensione dei file caricati, per entità e tipo di foto
+    private void recordUpload(Timer.Sample sample, EntityType entityType, PhotoType photoType, long bytes) {
+        UploadMeters meters = uploadMeters.computeIfAbsent(entityType + ":" + photoType,
+                key -> registerUploadMeters(entityType.name().toLowerCase(), photoType.name().toLowerCase()));
+        sample.stop(meters.duration());
+        meters.size().record(bytes);
+    }
+
+    private UploadMeters registerUploadMeters(String entity, String type) {
+        return new UploadMeters(
+                Timer.builder("taf.photo.upload")
+                        .description("Durata del salvataggio delle foto caricate")
+                        .tags("entity", entity, "type", type)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                DistributionSummary.builder("taf.photo.upload.size")
+                        .description("Dimensione delle foto caricate")
+                        .baseUnit("bytes")
+                        .tags("entity", entity, "type", type)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
     private String getFileExtension(MultipartFile file) {
         String originalFilename = file.getOriginalFilename();
         if (originalFilename == null || !originalFilename.contains(".")) {
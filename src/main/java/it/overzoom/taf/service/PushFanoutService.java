@@ -0,0 +1,22 @@
+package it.overzoom.taf.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import it.overzoom.taf.dto.PushFanoutStatsDTO;
+import it.overzoom.taf.dto.PushJobStatusDTO;
+import it.overzoom.taf.type.NotificationType;
+
+public interface PushFanoutService {
+
+    PushJobStatusDTO submit(NotificationType notificationType, String municipalityId, String title, String body,
+            Map<String, String> data);
+
+    PushJobStatusDTO submitToUsers(Collection<String> userIds, NotificationType notificationType, String title,
+            String body, Map<String, String> data);
+
+    Optional<PushJobStatusDTO> getJobStatus(String jobId);
+
+    PushFanoutStatsDTO getStats();
+}
@@ -0,0 +1,421 @@
+package it.overzoom.taf.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.overzoom.taf.dto.FcmSendResult;
+import it.overzoom.taf.dto.PushFanoutStatsDTO;
+import it.overzoom.taf.dto.PushJobStatusDTO;
+import it.overzoom.taf.model.User;
+import it.overzoom.taf.repository.UserRepository;
+import it.overzoom.taf.type.FcmSendStatus;
+import it.overzoom.taf.type.NotificationType;
+import it.overzoom.taf.type.PushJobStatus;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Motore di fan-out delle notifiche push: i job vengono accodati in una coda
+ * limitata e smaltiti da un pool di worker su virtual thread, così la
+ * richiesta HTTP che crea un evento, una notizia o un'attività non attende
+ * l'invio verso FCM.
+ */
+@Service
+public class PushFanoutServiceImpl implements PushFanoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(PushFanoutServiceImpl.class);
+    private static final int THROUGHPUT_WINDOW_SECONDS = 60;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final UserRepository userRepository;
+    private final FcmNotificationService fcmNotificationService;
+    private final MongoTemplate mongoTemplate;
+    private final NotificationOutboxService notificationOutboxService;
+
+    private final int queueCapacity;
+    private final int workers;
+    private final int batchSize;
+
+    private final BlockingQueue<PushJob> queue;
+    private final ExecutorService workerExecutor;
+    private final Map<String, PushJob> jobs;
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+    private final AtomicLong submittedJobs = new AtomicLong();
+    private final AtomicLong completedJobs = new AtomicLong();
+    private final AtomicLong rejectedJobs = new AtomicLong();
+    private final AtomicLong sentTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+    private final AtomicLongArray sentPerSecond = new AtomicLongArray(THROUGHPUT_WINDOW_SECONDS);
+    private final AtomicLongArray bucketSeconds = new AtomicLongArray(THROUGHPUT_WINDOW_SECONDS);
+
+    public PushFanoutServiceImpl(UserRepository userRepository, FcmNotificationService fcmNotificationService,
+            MongoTemplate mongoTemplate, NotificationOutboxService notificationOutboxService,
+            MeterRegistry meterRegistry,
+            @Value("${push.fanout.queue-capacity:1000}") int queueCapacity,
+            @Value("${push.fanout.workers:4}") int workers,
+            @Value("${push.fanout.batch-size:500}") int batchSize,
+            @Value("${push.fanout.retained-jobs:500}") int retainedJobs) {
+        this.userRepository = userRepository;
+        this.fcmNotificationService = fcmNotificationService;
+        this.mongoTemplate = mongoTemplate;
+        this.notificationOutboxService = notificationOutboxService;
+        this.queueCapacity = queueCapacity;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PushJob> eldest) {
+                return size() > retainedJobs;
+            }
+        });
+        this.workerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("push-fanout-", 0).factory());
+        for (int i = 0; i < workers; i++) {
+            workerExecutor.execute(this::workerLoop);
+        }
+
+        Gauge.builder("taf.push.fanout.queue.depth", queue, BlockingQueue::size)
+                .description("Job di fan-out in attesa nella coda")
+                .register(meterRegistry);
+        Gauge.builder("taf.push.fanout.jobs.running", runningJobs, AtomicInteger::get)
+                .description("Job di fan-out in corso")
+                .register(meterRegistry);
+        FunctionCounter.builder("taf.push.fanout.jobs.rejected", rejectedJobs, AtomicLong::get)
+                .description("Job scartati a coda piena")
+                .register(meterRegistry);
+        FunctionCounter.builder("taf.push.fanout.deliveries", sentTotal, AtomicLong::get)
+                .tag("outcome", "sent")
+                .register(meterRegistry);
+        FunctionCounter.builder("taf.push.fanout.deliveries", failedTotal, AtomicLong::get)
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public PushJobStatusDTO submit(NotificationType notificationType, String municipalityId, String title,
+            String body, Map<String, String> data) {
+        return enqueue(new PushJob(notificationType, municipalityId, null, title, body, data));
+    }
+
+    @Override
+    public PushJobStatusDTO submitToUsers(Collection<String> userIds, NotificationType notificationType,
+            String title, String body, Map<String, String> data) {
+        return enqueue(new PushJob(notificationType, null, List.copyOf(userIds), title, body, data));
+    }
+
+    private PushJobStatusDTO enqueue(PushJob job) {
+        jobs.put(job.id, job);
+        if (!queue.offer(job)) {
+            job.status = PushJobStatus.REJECTED;
+            job.completedAt = Instant.now();
+            rejectedJobs.incrementAndGet();
+            log.error("Coda di fan-out piena ({} job), notifica {} per il comune {} scartata", queueCapacity,
+                    job.notificationType, job.municipalityId);
+            return job.toDto();
+        }
+        submittedJobs.incrementAndGet();
+        log.info("Job di fan-out {} accodato: tipo {} comune {} (coda: {})", job.id, job.notificationType,
+                job.municipalityId, queue.size());
+        return job.toDto();
+    }
+
+    @Override
+    public Optional<PushJobStatusDTO> getJobStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(PushJob::toDto);
+    }
+
+    @Override
+    public PushFanoutStatsDTO getStats() {
+        PushFanoutStatsDTO stats = new PushFanoutStatsDTO();
+        stats.setQueueDepth(queue.size());
+        stats.setQueueCapacity(queueCapacity);
+        stats.setWorkers(workers);
+        stats.setRunningJobs(runningJobs.get());
+        stats.setSubmittedJobs(submittedJobs.get());
+        stats.setCompletedJobs(completedJobs.get());
+        stats.setRejectedJobs(rejectedJobs.get());
+        stats.setSentTotal(sentTotal.get());
+        stats.setFailedTotal(failedTotal.get());
+        stats.setThroughputPerSecond(recentThroughput());
+        return stats;
+    }
+
+    // I worker smaltiscono la coda entro il timeout. Poi i job ancora in coda passano all'outbox, che li invia
+    // dopo il riavvio; il job in corso si ferma al destinatario successivo e passa all'outbox quelli non gestiti
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        log.info("Arresto del motore di fan-out, job ancora in coda: {}", queue.size());
+        running = false;
+        workerExecutor.shutdown();
+        if (workerExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            return;
+        }
+        stopped = true;
+        List<PushJob> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(job -> handOffToOutbox(job, 0));
+        if (workerExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            return;
+        }
+        // Ultima risorsa: un batch ancora in attesa delle risposte FCM fallisce con IOException e passa
+        // all'outbox con sendBatch; una consegna all'outbox interrotta a metà perde i destinatari restanti
+        log.warn("Worker di fan-out ancora attivi dopo {} s, interruzione forzata", 2 * SHUTDOWN_TIMEOUT_SECONDS);
+        workerExecutor.shutdownNow();
+        workerExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Passa all'outbox i destinatari del job successivi ai primi "settled", già inviati o ritentati
+    private void handOffToOutbox(PushJob job, long settled) {
+        job.recipients.set(0);
+        try {
+            forEachRecipient(job, user -> {
+                if (job.recipients.get() > settled) {
+                    retryLater(job, user);
+                }
+            });
+            job.status = PushJobStatus.HANDED_OFF;
+            log.warn("Job di fan-out {} non completato prima dell'arresto: {} destinatari passati all'outbox",
+                    job.id, Math.max(0, job.recipients.get() - settled));
+        } catch (RuntimeException e) {
+            job.status = PushJobStatus.FAILED;
+            log.error("Job di fan-out {} interrotto all'arresto dopo {} destinatari, i restanti sono persi: {}",
+                    job.id, job.recipients.get(), e.getMessage(), e);
+        }
+    }
+
+    private void workerLoop() {
+        while (!stopped && (running || !queue.isEmpty())) {
+            PushJob job;
+            try {
+                job = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job != null) {
+                process(job);
+            }
+        }
+    }
+
+    private void process(PushJob job) {
+        job.status = PushJobStatus.RUNNING;
+        job.startedAt = Instant.now();
+        runningJobs.incrementAndGet();
+        try {
+            // Si invia ogni volta che il batch è pieno; sendBatch non trattiene la lista, che viene riusata
+            List<User> batch = new ArrayList<>(batchSize);
+            forEachRecipient(job, user -> {
+                if (stopped) {
+                    throw new CancellationException("Motore di fan-out in arresto");
+                }
+                batch.add(user);
+                if (batch.size() == batchSize) {
+                    sendBatch(job, batch);
+                    job.settled.addAndGet(batch.size());
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                sendBatch(job, batch);
+            }
+            job.status = PushJobStatus.COMPLETED;
+            log.info("Job di fan-out {} completato: {} destinatari, {} inviate, {} fallite", job.id,
+                    job.recipients.get(), job.sent.get(), job.failed.get());
+        } catch (Exception e) {
+            if (stopped) {
+                // Il cursore si riapre senza l'interruzione pendente, che viene ripristinata dopo la consegna
+                boolean interrupted = Thread.interrupted();
+                handOffToOutbox(job, job.settled.get());
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                job.status = PushJobStatus.FAILED;
+                log.error("Errore durante il job di fan-out {}: {}", job.id, e.getMessage(), e);
+            }
+        } finally {
+            job.completedAt = Instant.now();
+            runningJobs.decrementAndGet();
+            completedJobs.incrementAndGet();
+        }
+    }
+
+    // Destinatari con token del job: per id a blocchi di batchSize, oppure tutti gli iscritti del comune.
+    // L'ordine è stabile (blocchi nell'ordine degli id, _id crescente) per riprendere un job interrotto
+    private void forEachRecipient(PushJob job, Consumer<User> action) {
+        Consumer<User> counted = user -> {
+            job.recipients.incrementAndGet();
+            action.accept(user);
+        };
+        if (job.userIds != null) {
+            for (int from = 0; from < job.userIds.size(); from += batchSize) {
+                List<String> chunk = job.userIds.subList(from, Math.min(from + batchSize, job.userIds.size()));
+                try (Stream<User> recipients = mongoTemplate.stream(
+                        recipientsByIds(chunk, job.notificationType), User.class)) {
+                    recipients.forEach(counted);
+                }
+            }
+        } else {
+            try (Stream<User> recipients = userRepository.streamPushRecipients(job.notificationType,
+                    job.municipalityId)) {
+                recipients.forEach(counted);
+            }
+        }
+    }
+
+    private Query recipientsByIds(List<String> userIds, NotificationType notificationType) {
+        Query query = Query.query(Criteria.where("_id").in(userIds)
+                .and("notificationTypes").is(notificationType)
+                .and("fcmToken").nin(null, ""));
+        query.fields().include("_id").include("fcmToken");
+        return query.with(Sort.by("_id"));
+    }
+
+    private void sendBatch(PushJob job, List<User> users) {
+        List<String> tokens = users.stream().map(User::getFcmToken).toList();
+        List<FcmSendResult> results;
+        try {
+            results = fcmNotificationService.sendNotifications(tokens, job.title, job.body, job.data);
+        } catch (IOException ex) {
+            job.failed.addAndGet(tokens.size());
+            failedTotal.addAndGet(tokens.size());
+            log.warn("Invio batch FCM fallito nel job {} ({} token): {}", job.id, tokens.size(), ex.getMessage());
+            users.forEach(user -> retryLater(job, user));
+            return;
+        }
+        List<String> invalidTokens = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            FcmSendResult result = results.get(i);
+            if (result.getStatus() == FcmSendStatus.SENT) {
+                job.sent.incrementAndGet();
+                sentTotal.incrementAndGet();
+                recordDelivery();
+            } else {
+                job.failed.incrementAndGet();
+                failedTotal.incrementAndGet();
+                if (result.getStatus() == FcmSendStatus.INVALID_TOKEN) {
+                    invalidTokens.add(result.getToken());
+                } else {
+                    retryLater(job, users.get(i));
+                }
+            }
+        }
+        clearTokens(invalidTokens);
+    }
+
+    // Gli errori transitori passano all'outbox, che ritenta con backoff
+    private void retryLater(PushJob job, User user) {
+        notificationOutboxService.enqueue(user.getId(), job.title, job.body, job.data, job.id + ":" + user.getId());
+    }
+
+    // Rimuove in un'unica operazione i token rifiutati da FCM: il filtro sul
+    // valore del token evita di cancellare quelli registrati nel frattempo
+    private void clearTokens(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        long cleared = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("fcmToken").in(tokens)),
+                new Update().unset("fcmToken"), User.class).getModifiedCount();
+        log.warn("FcmToken rimossi per {} utenti dopo invii rifiutati", cleared);
+    }
+
+    private void recordDelivery() {
+        long now = System.currentTimeMillis() / 1000;
+        int slot = (int) (now % THROUGHPUT_WINDOW_SECONDS);
+        long bucket = bucketSeconds.get(slot);
+        if (bucket != now && bucketSeconds.compareAndSet(slot, bucket, now)) {
+            sentPerSecond.set(slot, 0);
+        }
+        sentPerSecond.incrementAndGet(slot);
+    }
+
+    private double recentThroughput() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < THROUGHPUT_WINDOW_SECONDS; i++) {
+            if (now - bucketSeconds.get(i) < THROUGHPUT_WINDOW_SECONDS) {
+                total += sentPerSecond.get(i);
+            }
+        }
+        return (double) total / THROUGHPUT_WINDOW_SECONDS;
+    }
+
+    private static final class PushJob {
+        private final String id = UUID.randomUUID().toString();
+        private final NotificationType notificationType;
+        private final String municipalityId;
+        private final List<String> userIds;
+        private final String title;
+        private final String body;
+        private final Map<String, String> data;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicLong recipients = new AtomicLong();
+        private final AtomicLong settled = new AtomicLong();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile PushJobStatus status = PushJobStatus.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant completedAt;
+
+        private PushJob(NotificationType notificationType, String municipalityId, List<String> userIds,
+                String title, String body, Map<String, String> data) {
+            this.notificationType = notificationType;
+            this.municipalityId = municipalityId;
+            this.userIds = userIds;
+            this.title = title;
+            this.body = body;
+            this.data = data;
+        }
+
+        private PushJobStatusDTO toDto() {
+            PushJobStatusDTO dto = new PushJobStatusDTO();
+            dto.setJobId(id);
+            dto.setNotificationType(notificationType);
+            dto.setMunicipalityId(municipalityId);
+            dto.setStatus(status);
+            dto.setRecipients(recipients.get());
+            dto.setSent(sent.get());
+            dto.setFailed(failed.get());
+            dto.setSubmittedAt(submittedAt);
+            dto.setStartedAt(startedAt);
+            dto.setCompletedAt(completedAt);
+            return dto;
+        }
+    }
+}
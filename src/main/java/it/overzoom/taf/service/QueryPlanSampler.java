@@ -0,0 +1,12 @@
+package it.overzoom.taf.service;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+public interface QueryPlanSampler {
+
+    /**
+     * Su una frazione delle richieste esegue in background l'explain della
+     * query e segnala nei log i piani con COLLSCAN o SORT in memoria.
+     */
+    void sample(Query query, Class<?> entityClass, String collectionName);
+}
@@ -0,0 +1,100 @@
+package it.overzoom.taf.service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+
+import it.overzoom.taf.utils.QueryPlanUtils;
+
+@Service
+public class QueryPlanSamplerImpl implements QueryPlanSampler {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanSamplerImpl.class);
+    private static final ExecutorService EXPLAIN_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Set<String> BLOCKING_STAGES = Set.of("COLLSCAN", "SORT");
+    private static final int MAX_SHAPES = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final QueryMapper queryMapper;
+    private final double sampleRate;
+    // Forme già analizzate di recente: ogni forma viene spiegata al più una volta per intervallo
+    private final Cache<String, Boolean> recentShapes;
+
+    public QueryPlanSamplerImpl(MongoTemplate mongoTemplate,
+            @Value("${search.explain.sample-rate:0.01}") double sampleRate,
+            @Value("${search.explain.shape-interval-ms:600000}") long shapeIntervalMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        this.sampleRate = sampleRate;
+        this.recentShapes = Caffeine.newBuilder()
+                .maximumSize(MAX_SHAPES)
+                .expireAfterWrite(Duration.ofMillis(shapeIntervalMs))
+                .build();
+    }
+
+    @Override
+    public void sample(Query query, Class<?> entityClass, String collectionName) {
+        // Le ricerche testuali passano sempre dall'indice di testo e ordinano per punteggio in memoria
+        if (sampleRate <= 0 || query instanceof TextQuery
+                || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        // La query viene letta subito: il chiamante può modificarla dopo la find
+        Document filter = query.getQueryObject();
+        Document sort = query.getSortObject();
+        long skip = query.getSkip();
+        int limit = query.getLimit();
+        EXPLAIN_EXECUTOR.execute(() -> explain(filter, sort, skip, limit, entityClass, collectionName));
+    }
+
+    private void explain(Document filter, Document sort, long skip, int limit, Class<?> entityClass,
+            String collectionName) {
+        try {
+            MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                    .getPersistentEntity(entityClass);
+            Document mappedFilter = queryMapper.getMappedObject(filter, entity);
+            Document mappedSort = queryMapper.getMappedSort(sort, entity);
+            String filterShape = QueryPlanUtils.shapeOf(mappedFilter).toJson();
+            String shape = collectionName + " " + filterShape + " " + mappedSort.toJson();
+            if (recentShapes.asMap().putIfAbsent(shape, Boolean.TRUE) != null) {
+                return;
+            }
+
+            FindIterable<Document> find = mongoTemplate.getCollection(collectionName).find(mappedFilter)
+                    .sort(mappedSort)
+                    .skip((int) skip)
+                    .limit(limit);
+            Document winningPlan = QueryPlanUtils.winningPlan(find.explain(ExplainVerbosity.QUERY_PLANNER));
+            if (winningPlan == null) {
+                return;
+            }
+            Set<String> stages = new TreeSet<>(QueryPlanUtils.stagesOf(winningPlan));
+            stages.retainAll(BLOCKING_STAGES);
+            if (!stages.isEmpty()) {
+                log.warn("Piano di ricerca senza indice adeguato su {}: {} per filtro {} e ordinamento {}",
+                        collectionName, stages, filterShape, mappedSort.toJson());
+            }
+        } catch (RuntimeException e) {
+            log.debug("Explain non riuscito su {}: {}", collectionName, e.getMessage());
+        }
+    }
+}
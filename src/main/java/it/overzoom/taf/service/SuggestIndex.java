@@ -0,0 +1,26 @@
+package it.overzoom.taf.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import it.overzoom.taf.dto.SuggestionDTO;
+import it.overzoom.taf.model.Activity;
+import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.News;
+import it.overzoom.taf.type.SuggestType;
+
+public interface SuggestIndex {
+
+    List<SuggestionDTO> suggest(String text, Collection<String> municipalityIds, Set<SuggestType> types, int limit);
+
+    void put(Activity activity);
+
+    void put(Event event);
+
+    void put(News news);
+
+    void remove(SuggestType type, String id);
+
+    void rebuild();
+}
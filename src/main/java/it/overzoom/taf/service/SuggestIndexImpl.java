@@ -0,0 +1,381 @@
+package it.overzoom.taf.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import it.overzoom.taf.dto.SuggestionDTO;
+import it.overzoom.taf.model.Activity;
+import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.News;
+import it.overzoom.taf.type.ActivityTagType;
+import it.overzoom.taf.type.SuggestType;
+import it.overzoom.taf.utils.TextAnalyzer;
+
+/**
+ * Indice invertito in memoria per i suggerimenti della ricerca, partizionato
+ * per comune. Ogni partizione ha un dizionario ordinato dei termini (usato
+ * come trie per la ricerca per prefisso) e un limite di elementi. Viene
+ * ricostruito da Mongo all'avvio e periodicamente, e aggiornato dai service a
+ * ogni scrittura; le scritture arrivate durante una ricostruzione vengono
+ * riapplicate sul nuovo indice prima di pubblicarlo.
+ */
+@Service
+public class SuggestIndexImpl implements SuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestIndexImpl.class);
+    private static final int MAX_LABEL_LENGTH = 200;
+    private static final int MAX_TAGS = 20;
+    // Oltre questa soglia i candidati per un prefisso corto vengono troncati prima dell'ordinamento
+    private static final int MAX_CANDIDATES = 2_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxEntriesPerTenant;
+    private final Object writeLock = new Object();
+    private volatile Map<String, TenantIndex> tenants = new ConcurrentHashMap<>();
+    private List<Consumer<Map<String, TenantIndex>>> replay;
+
+    public SuggestIndexImpl(MongoTemplate mongoTemplate,
+            @Value("${search.suggest.max-entries-per-tenant:20000}") int maxEntriesPerTenant) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxEntriesPerTenant = maxEntriesPerTenant;
+    }
+
+    @Override
+    public List<SuggestionDTO> suggest(String text, Collection<String> municipalityIds, Set<SuggestType> types,
+            int limit) {
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // L'ultima parola è in corso di digitazione: si cerca per prefisso; le altre devono essere complete
+        String prefix = TextAnalyzer.stem(tokens.get(tokens.size() - 1));
+        List<String> words = tokens.subList(0, tokens.size() - 1).stream()
+                .filter(token -> !TextAnalyzer.isStopword(token))
+                .map(TextAnalyzer::stem)
+                .toList();
+
+        Map<String, TenantIndex> current = tenants;
+        Collection<TenantIndex> partitions = municipalityIds == null ? current.values()
+                : municipalityIds.stream().map(current::get).filter(tenant -> tenant != null).toList();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Scored> scored = new ArrayList<>();
+        for (TenantIndex tenant : partitions) {
+            tenant.collect(words, prefix, types, now, scored);
+        }
+        return scored.stream()
+                .sorted(Comparator.comparingInt((Scored s) -> -s.score)
+                        .thenComparingInt(s -> s.entry.label.length())
+                        .thenComparing(s -> s.entry.label))
+                .limit(limit)
+                .map(s -> new SuggestionDTO(s.entry.type, s.entry.id, s.entry.label, s.entry.municipalityId))
+                .toList();
+    }
+
+    @Override
+    public void put(Activity activity) {
+        Entry entry = entryOf(activity);
+        apply(index -> upsertOrWarn(index, entry));
+    }
+
+    @Override
+    public void put(Event event) {
+        Entry entry = entryOf(event);
+        if (entry == null) {
+            remove(SuggestType.EVENT, event.getId());
+            return;
+        }
+        apply(index -> upsertOrWarn(index, entry));
+    }
+
+    @Override
+    public void put(News news) {
+        Entry entry = entryOf(news);
+        apply(index -> upsertOrWarn(index, entry));
+    }
+
+    @Override
+    public void remove(SuggestType type, String id) {
+        String key = type + ":" + id;
+        apply(index -> index.values().forEach(tenant -> tenant.remove(key)));
+    }
+
+    // Ricostruzione completa da Mongo, anche per allinearsi alle scritture di altre istanze
+    @Override
+    @Scheduled(fixedDelayString = "${search.suggest.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        synchronized (writeLock) {
+            replay = new ArrayList<>();
+        }
+        Map<String, TenantIndex> rebuilt = new ConcurrentHashMap<>();
+        Map<String, Integer> dropped = new HashMap<>();
+        Consumer<Entry> add = entry -> {
+            if (!upsert(rebuilt, entry)) {
+                dropped.merge(entry.municipalityId, 1, Integer::sum);
+            }
+        };
+        try {
+            Query activities = new Query();
+            activities.fields().include("name", "type", "tags", "municipalityId");
+            try (Stream<Activity> stream = mongoTemplate.stream(activities, Activity.class)) {
+                stream.map(this::entryOf).forEach(add);
+            }
+            Query events = Query.query(new Criteria().orOperator(
+                    Criteria.where("endDateTime").gte(LocalDateTime.now()),
+                    Criteria.where("endDateTime").is(null)));
+            events.fields().include("title", "type", "tags", "municipalityId", "endDateTime", "isCancelled");
+            try (Stream<Event> stream = mongoTemplate.stream(events, Event.class)) {
+                stream.map(this::entryOf).filter(entry -> entry != null).forEach(add);
+            }
+            Query news = new Query();
+            news.fields().include("title", "tags", "municipalityId");
+            try (Stream<News> stream = mongoTemplate.stream(news, News.class)) {
+                stream.map(this::entryOf).forEach(add);
+            }
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                replay = null;
+            }
+            log.warn("Ricostruzione dell'indice dei suggerimenti fallita: {}", e.getMessage());
+            return;
+        }
+        synchronized (writeLock) {
+            replay.forEach(operation -> operation.accept(rebuilt));
+            replay = null;
+            tenants = rebuilt;
+        }
+        log.info("Indice dei suggerimenti ricostruito: {} comuni, {} elementi", rebuilt.size(),
+                rebuilt.values().stream().mapToInt(TenantIndex::size).sum());
+        dropped.forEach((municipalityId, count) -> log.warn(
+                "Indice dei suggerimenti pieno per il comune {}: {} elementi non indicizzati", municipalityId, count));
+    }
+
+    private Entry entryOf(Activity activity) {
+        List<String> tags = new ArrayList<>();
+        if (activity.getType() != null) {
+            tags.add(activity.getType().getLabel());
+        }
+        if (activity.getTags() != null) {
+            Arrays.stream(activity.getTags()).filter(tag -> tag != null).map(ActivityTagType::getLabel)
+                    .forEach(tags::add);
+        }
+        return new Entry(SuggestType.ACTIVITY, activity.getId(), activity.getMunicipalityId(), activity.getName(),
+                tags, null);
+    }
+
+    // Gli eventi annullati non vengono suggeriti
+    private Entry entryOf(Event event) {
+        if (Boolean.TRUE.equals(event.getIsCancelled())) {
+            return null;
+        }
+        List<String> tags = new ArrayList<>();
+        if (event.getType() != null) {
+            tags.add(event.getType().getLabel());
+        }
+        if (event.getTags() != null) {
+            tags.addAll(Arrays.asList(event.getTags()));
+        }
+        return new Entry(SuggestType.EVENT, event.getId(), event.getMunicipalityId(), event.getTitle(), tags,
+                event.getEndDateTime());
+    }
+
+    private Entry entryOf(News news) {
+        List<String> tags = news.getTags() != null ? Arrays.asList(news.getTags()) : List.of();
+        return new Entry(SuggestType.NEWS, news.getId(), news.getMunicipalityId(), news.getTitle(), tags, null);
+    }
+
+    private void apply(Consumer<Map<String, TenantIndex>> operation) {
+        synchronized (writeLock) {
+            operation.accept(tenants);
+            if (replay != null) {
+                replay.add(operation);
+            }
+        }
+    }
+
+    // Le scritture singole segnalano subito l'elemento scartato; la ricostruzione riepiloga per comune
+    private void upsertOrWarn(Map<String, TenantIndex> index, Entry entry) {
+        if (!upsert(index, entry)) {
+            log.warn("Indice dei suggerimenti pieno per il comune {}: {} non indicizzato", entry.municipalityId,
+                    entry.key);
+        }
+    }
+
+    // false se la partizione del comune è piena e l'elemento non è stato indicizzato
+    private boolean upsert(Map<String, TenantIndex> index, Entry entry) {
+        // Se l'elemento ha cambiato comune va tolto dalla vecchia partizione
+        index.values().forEach(tenant -> tenant.remove(entry.key));
+        if (entry.municipalityId == null || entry.label == null || entry.label.isBlank()) {
+            return true;
+        }
+        TenantIndex tenant = index.computeIfAbsent(entry.municipalityId, id -> new TenantIndex(maxEntriesPerTenant));
+        return tenant.add(entry);
+    }
+
+    private static final class Entry {
+
+        private final SuggestType type;
+        private final String id;
+        private final String key;
+        private final String municipalityId;
+        private final String label;
+        private final Set<String> labelTerms;
+        private final Set<String> terms;
+        private final LocalDateTime expiresAt;
+
+        private Entry(SuggestType type, String id, String municipalityId, String label, List<String> tags,
+                LocalDateTime expiresAt) {
+            this.type = type;
+            this.id = id;
+            this.key = type + ":" + id;
+            this.municipalityId = municipalityId;
+            this.label = label != null && label.length() > MAX_LABEL_LENGTH ? label.substring(0, MAX_LABEL_LENGTH)
+                    : label;
+            this.labelTerms = new HashSet<>(TextAnalyzer.terms(this.label));
+            this.terms = new HashSet<>(labelTerms);
+            tags.stream().limit(MAX_TAGS).forEach(tag -> terms.addAll(TextAnalyzer.terms(tag)));
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record Scored(Entry entry, int score) {
+    }
+
+    private static final class TenantIndex {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final TreeMap<String, Set<Entry>> postings = new TreeMap<>();
+        private final int maxEntries;
+
+        private TenantIndex(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        private int size() {
+            lock.readLock().lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private boolean add(Entry entry) {
+            lock.writeLock().lock();
+            try {
+                if (entries.size() >= maxEntries) {
+                    return false;
+                }
+                entries.put(entry.key, entry);
+                for (String term : entry.terms) {
+                    postings.computeIfAbsent(term, t -> new HashSet<>()).add(entry);
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(String key) {
+            lock.writeLock().lock();
+            try {
+                Entry entry = entries.remove(key);
+                if (entry == null) {
+                    return;
+                }
+                for (String term : entry.terms) {
+                    Set<Entry> posting = postings.get(term);
+                    if (posting != null) {
+                        posting.remove(entry);
+                        if (posting.isEmpty()) {
+                            postings.remove(term);
+                        }
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void collect(List<String> words, String prefix, Set<SuggestType> types, LocalDateTime now,
+                List<Scored> out) {
+            lock.readLock().lock();
+            try {
+                Set<Entry> candidates = null;
+                // Parole complete: intersezione delle liste, partendo dalla più corta
+                for (String word : words.stream()
+                        .sorted(Comparator.comparingInt(w -> postings.getOrDefault(w, Set.of()).size()))
+                        .toList()) {
+                    Set<Entry> posting = postings.getOrDefault(word, Set.of());
+                    if (candidates == null) {
+                        candidates = new LinkedHashSet<>(posting);
+                    } else {
+                        candidates.retainAll(posting);
+                    }
+                    if (candidates.isEmpty()) {
+                        return;
+                    }
+                }
+
+                SortedMap<String, Set<Entry>> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+                Set<Entry> matches = new LinkedHashSet<>();
+                if (candidates == null) {
+                    for (Set<Entry> posting : range.values()) {
+                        matches.addAll(posting);
+                        if (matches.size() >= MAX_CANDIDATES) {
+                            break;
+                        }
+                    }
+                } else {
+                    for (Entry entry : candidates) {
+                        if (entry.terms.stream().anyMatch(term -> term.startsWith(prefix))) {
+                            matches.add(entry);
+                        }
+                    }
+                }
+
+                for (Entry entry : matches) {
+                    if ((types != null && !types.contains(entry.type))
+                            || (entry.expiresAt != null && entry.expiresAt.isBefore(now))) {
+                        continue;
+                    }
+                    // Le corrispondenze nel titolo contano più di quelle nei tag
+                    int score = entry.labelTerms.stream().anyMatch(term -> term.startsWith(prefix)) ? 2 : 0;
+                    for (String word : words) {
+                        if (entry.labelTerms.contains(word)) {
+                            score++;
+                        }
+                    }
+                    out.add(new Scored(entry, score));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package it.overzoom.taf.service;
+
+import java.util.Optional;
+
+import it.overzoom.taf.dto.TenantScope;
+
+public interface TenantScopeResolver {
+
+    Optional<TenantScope> resolve(String userId);
+
+    Optional<String> getDefaultMunicipalityId();
+
+    void evict(String userId);
+}
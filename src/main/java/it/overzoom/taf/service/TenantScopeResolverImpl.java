@@ -0,0 +1,70 @@
+package it.overzoom.taf.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import it.overzoom.taf.dto.TenantScope;
+import it.overzoom.taf.model.Municipal;
+import it.overzoom.taf.repository.UserRepository;
+
+/**
+ * Cache limitata e con scadenza dei comuni visibili a ciascun utente, così le
+ * ricerche non rileggono l'utente a ogni richiesta; il comune predefinito
+ * arriva dal MunicipalRegistry. Anche l'assenza dell'utente viene memorizzata;
+ * le modifiche all'utente passano da evict().
+ */
+@Service
+public class TenantScopeResolverImpl implements TenantScopeResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantScopeResolverImpl.class);
+
+    private final UserRepository userRepository;
+    private final MunicipalRegistry municipalRegistry;
+    private final Cache<String, Optional<TenantScope>> scopes;
+
+    public TenantScopeResolverImpl(UserRepository userRepository, MunicipalRegistry municipalRegistry,
+            @Value("${tenant.scope.cache.max-size:10000}") long maxSize,
+            @Value("${tenant.scope.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.municipalRegistry = municipalRegistry;
+        this.scopes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    @Override
+    public Optional<TenantScope> resolve(String userId) {
+        return scopes.get(userId, this::load);
+    }
+
+    @Override
+    public Optional<String> getDefaultMunicipalityId() {
+        return municipalRegistry.getDefault().map(Municipal::getId);
+    }
+
+    @Override
+    public void evict(String userId) {
+        if (userId != null) {
+            log.debug("Invalidazione dello scope comunale dell'utente {}", userId);
+            scopes.invalidate(userId);
+        }
+    }
+
+    private Optional<TenantScope> load(String userId) {
+        log.debug("Caricamento dello scope comunale dell'utente {}", userId);
+        return userRepository.findMunicipalityIdsByUserId(userId)
+                .map(user -> new TenantScope(userId, user.getMunicipalityIds() != null
+                        ? Arrays.asList(user.getMunicipalityIds())
+                        : null));
+    }
+}
@@ -25,10 +25,13 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PhotoService photoService;
+    private final TenantScopeResolver tenantScopeResolver;
 
-    public UserServiceImpl(UserRepository userRepository, PhotoService photoService) {
+    public UserServiceImpl(UserRepository userRepository, PhotoService photoService,
+            TenantScopeResolver tenantScopeResolver) {
         this.userRepository = userRepository;
         this.photoService = photoService;
+        this.tenantScopeResolver = tenantScopeResolver;
     }
 
     public Page<User> findAll(Pageable pageable) {
@@ -61,7 +64,9 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public User create(User user) {
         log.info("Creazione di un nuovo utente con ID {}", user.getId());
-        return userRepository.save(user);
+        User created = userRepository.save(user);
+        tenantScopeResolver.evict(created.getUserId());
+        return created;
     }
 
     @Transactional
@@ -75,7 +80,8 @@ public class UserServiceImpl implements UserService {
             existingUser.setFcmToken(user.getFcmToken());
             existingUser.setNotificationTypes(user.getNotificationTypes());
             return existingUser;
-        }).map(userRepository::save);
+        }).map(userRepository::save)
+                .map(this::evictScope);
     }
 
     @Transactional
@@ -83,6 +89,8 @@ public class UserServiceImpl implements UserService {
         log.info("Aggiornamento parziale dell'utente con ID {}", id);
         return userRepository.findById(id)
                 .map(existingUser -> {
+                    // Se cambia lo userId va invalidato anche lo scope del vecchio valore
+                    tenantScopeResolver.evict(existingUser.getUserId());
                     if (user.getName() != null) {
                         existingUser.setName(user.getName());
                     }
@@ -110,7 +118,8 @@ public class UserServiceImpl implements UserService {
 
                     return existingUser;
                 })
-                .map(userRepository::save);
+                .map(userRepository::save)
+                .map(this::evictScope);
     }
 
     public boolean hasAccess(String userId) throws ResourceNotFoundException {
@@ -136,14 +145,22 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void deleteById(String id) {
         log.info("Eliminazione dell'utente con ID {}", id);
+        userRepository.findById(id).ifPresent(this::evictScope);
         userRepository.deleteById(id);
     }
 
+    // I comuni dell'utente sono in cache per le ricerche: ogni modifica la invalida
+    private User evictScope(User user) {
+        tenantScopeResolver.evict(user.getUserId());
+        return user;
+    }
+
     @Transactional
     public void deleteByUserId(String userId) {
         log.info("Eliminazione dell'utente con UserId {}", userId);
         userRepository.findByUserId(userId).ifPresent(user -> {
             userRepository.delete(user);
+            tenantScopeResolver.evict(userId);
             log.info("Utente con UserId {} eliminato con successo", userId);
         });
     }
@@ -0,0 +1,7 @@
+package it.overzoom.taf.type;
+
+public enum FcmSendStatus {
+    SENT,
+    INVALID_TOKEN,
+    FAILED
+}
@@ -0,0 +1,11 @@
+package it.overzoom.taf.type;
+
+// Semantica di un filtro stringa di /search, dichiarata per campo da ogni controller
+public enum FilterMode {
+    // Uguaglianza sul valore: servita dall'indice del campo
+    EXACT,
+    // Inizio del valore, senza maiuscole e accenti: range sull'indice del campo normalizzato
+    PREFIX,
+    // Sottostringa ovunque nel valore: regex senza ancoraggio, richiede la scansione
+    CONTAINS
+}
@@ -0,0 +1,8 @@
+package it.overzoom.taf.type;
+
+public enum OutboxStatus {
+    PENDING,
+    IN_PROGRESS,
+    SENT,
+    DEAD
+}
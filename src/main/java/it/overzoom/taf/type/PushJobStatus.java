@@ -0,0 +1,10 @@
+package it.overzoom.taf.type;
+
+public enum PushJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    HANDED_OFF,
+    REJECTED
+}
@@ -0,0 +1,6 @@
+package it.overzoom.taf.type;
+
+public enum RegistrationStatus {
+    REGISTERED,
+    CHECKED_IN
+}
@@ -0,0 +1,7 @@
+package it.overzoom.taf.type;
+
+public enum SuggestType {
+    ACTIVITY,
+    EVENT,
+    NEWS
+}
@@ -0,0 +1,134 @@
+package it.overzoom.taf.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import it.overzoom.taf.type.ExportFormat;
+
+/**
+ * Scrive una riga alla volta sull'output della risposta: nessuna lista di
+ * risultati viene tenuta in memoria, solo il buffer di scrittura. Alla
+ * chiusura svuota il buffer ma non chiude lo stream sottostante, che resta
+ * gestito dal container.
+ */
+public abstract class ExportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static ExportWriter open(ExportFormat format, OutputStream out, ObjectMapper objectMapper,
+            FieldProjection projection, List<String> columns) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(out, objectMapper.writer(projection.filterProvider()));
+            case CSV -> new CsvWriter(out, objectMapper, columns);
+        };
+    }
+
+    public abstract void write(Object dto) throws IOException;
+
+    // Un oggetto JSON per riga, serializzato con gli stessi filtri di /search
+    private static final class NdjsonWriter extends ExportWriter {
+
+        private final OutputStream out;
+        private final ObjectWriter writer;
+
+        private NdjsonWriter(OutputStream out, ObjectWriter writer) {
+            this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(Object dto) throws IOException {
+            out.write(writer.writeValueAsBytes(dto));
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    // RFC 4180: intestazione con le colonne, array uniti da ";"
+    private static final class CsvWriter extends ExportWriter {
+
+        private final Writer out;
+        private final ObjectMapper objectMapper;
+        private final List<String> columns;
+
+        private CsvWriter(OutputStream out, ObjectMapper objectMapper, List<String> columns) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.objectMapper = objectMapper;
+            this.columns = columns;
+            writeRow(columns);
+        }
+
+        @Override
+        public void write(Object dto) throws IOException {
+            JsonNode node = objectMapper.valueToTree(dto);
+            writeRow(columns.stream().map(column -> cell(node.get(column))).toList());
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+
+        private void writeRow(List<String> cells) throws IOException {
+            for (int i = 0; i < cells.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(escape(cells.get(i)));
+            }
+            out.write("\r\n");
+        }
+
+        private static String cell(JsonNode value) {
+            if (value == null || value.isNull()) {
+                return "";
+            }
+            if (value.isArray()) {
+                StringBuilder joined = new StringBuilder();
+                value.forEach(item -> {
+                    if (joined.length() > 0) {
+                        joined.append(';');
+                    }
+                    joined.append(item.isValueNode() ? item.asText() : item.toString());
+                });
+                return value.path(0).isTextual() ? defuseFormula(joined.toString()) : joined.toString();
+            }
+            if (value.isTextual()) {
+                return defuseFormula(value.asText());
+            }
+            return value.isValueNode() ? value.asText() : value.toString();
+        }
+
+        // I fogli di calcolo interpretano come formula le celle che iniziano con = + - @ (o tab/CR):
+        // sui testi inseriti dagli utenti l'apice iniziale le fa leggere come testo. I numeri restano invariati.
+        private static String defuseFormula(String text) {
+            if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+                return "'" + text;
+            }
+            return text;
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
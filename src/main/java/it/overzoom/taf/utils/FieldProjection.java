@@ -0,0 +1,119 @@
+package it.overzoom.taf.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * Sottoinsieme di campi richiesto da un endpoint di elenco ("fields" oppure
+ * una vista predefinita come "card"). Diventa una proiezione Mongo, così i
+ * campi esclusi non vengono letti né mappati, e viene registrato sulla
+ * richiesta perché la serializzazione JSON ometta anche le chiavi vuote.
+ *
+ * I nomi sono quelli dei DTO, che coincidono con le proprietà delle entità.
+ */
+public final class FieldProjection {
+
+    /** Id del filtro Jackson dichiarato su BaseDTO. */
+    public static final String FILTER_ID = "fieldProjection";
+    /** Attributo della richiesta letto dalla serializzazione della risposta. */
+    public static final String REQUEST_ATTRIBUTE = FieldProjection.class.getName();
+    public static final String VIEW_DETAIL = "detail";
+
+    private static final FieldProjection ALL = new FieldProjection(null);
+
+    private final Set<String> fields;
+
+    private FieldProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldProjection all() {
+        return ALL;
+    }
+
+    /**
+     * Risolve i parametri della richiesta: "fields" (lista o stringa separata
+     * da virgole) ha la precedenza su "view". I campi ammessi sono quelli della
+     * vista "detail"; id è sempre incluso.
+     */
+    public static FieldProjection resolve(Object fields, String view, Map<String, List<String>> views)
+            throws BadRequestException {
+        List<String> allowed = views.get(VIEW_DETAIL);
+        Collection<?> requested;
+        if (fields instanceof Collection<?> list && !list.isEmpty()) {
+            requested = list;
+        } else if (fields instanceof String text && !text.isBlank()) {
+            requested = List.of(text.split(","));
+        } else if (view != null && !view.isBlank()) {
+            requested = views.get(view.toLowerCase());
+            if (requested == null) {
+                throw new BadRequestException("Vista non valida: " + view + ". Valori ammessi: " + views.keySet());
+            }
+        } else {
+            return ALL;
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (Object field : requested) {
+            String name = String.valueOf(field).trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (allowed == null || !allowed.contains(name)) {
+                throw new BadRequestException("Campo non valido: " + name);
+            }
+            selected.add(name);
+        }
+        return new FieldProjection(Collections.unmodifiableSet(selected));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    /** Campi selezionati nell'ordine richiesto, id per primo; null se non c'è proiezione. */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /** Filtri Jackson per serializzare i DTO con i soli campi selezionati. */
+    public FilterProvider filterProvider() {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, fields == null ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields));
+    }
+
+    /** Aggiunge alla query la proiezione sui campi selezionati più quelli richiesti (es. ordinamento). */
+    public Query applyTo(Query query, Collection<String> requiredFields) {
+        if (fields != null) {
+            fields.forEach(field -> query.fields().include(field));
+            requiredFields.forEach(field -> query.fields().include(field));
+        }
+        return query;
+    }
+
+    public Query applyTo(Query query) {
+        return applyTo(query, List.of());
+    }
+
+    /** Registra la proiezione sulla richiesta HTTP corrente per la serializzazione. */
+    public void bindToResponse() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (fields != null && attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, this, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package it.overzoom.taf.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+
+import it.overzoom.taf.exception.InvalidBoundingBoxException;
+
+public final class GeoUtils {
+
+    // Lati più lunghi non sono univoci su una sfera: il rettangolo viene spezzato in tratti più corti
+    private static final double MAX_EDGE_DEGREES = 90;
+
+    private GeoUtils() {
+    }
+
+    public static GeoJsonPoint point(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            return null;
+        }
+        return new GeoJsonPoint(longitude, latitude);
+    }
+
+    /**
+     * Poligono GeoJSON del rettangolo di una mappa, da usare con $geoWithin
+     * su un indice 2dsphere. I lati seguono i geodetici: per le finestre di
+     * una mappa la differenza rispetto ai paralleli è trascurabile.
+     *
+     * @throws InvalidBoundingBoxException se il rettangolo ha area nulla o
+     *                                     coordinate non numeriche: Mongo
+     *                                     rifiuterebbe il poligono degenere
+     */
+    public static GeoJsonPolygon boundingBox(double north, double south, double east, double west) {
+        double n = clamp(Math.max(north, south), 90);
+        double s = clamp(Math.min(north, south), 90);
+        double e = clamp(Math.max(east, west), 180);
+        double w = clamp(Math.min(east, west), 180);
+        if (Double.isNaN(n + s + e + w) || n == s || e == w) {
+            throw new InvalidBoundingBoxException("Bounding box non valido: north/south ed east/west devono essere"
+                    + " numeri distinti");
+        }
+
+        List<Point> ring = new ArrayList<>();
+        int steps = Math.max(1, (int) Math.ceil((e - w) / MAX_EDGE_DEGREES));
+        for (int i = 0; i <= steps; i++) {
+            ring.add(new Point(w + (e - w) * i / steps, s));
+        }
+        for (int i = steps; i >= 0; i--) {
+            ring.add(new Point(w + (e - w) * i / steps, n));
+        }
+        ring.add(new Point(w, s));
+        return new GeoJsonPolygon(ring);
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
@@ -0,0 +1,79 @@
+package it.overzoom.taf.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Istogramma delle latenze a bucket fissi, aggiornabile da più thread senza
+ * lock. I percentili sono stimati con il limite superiore del bucket che li
+ * contiene.
+ */
+public final class LatencyHistogram {
+
+    // Limiti superiori dei bucket in millisecondi; l'ultimo bucket raccoglie il resto
+    private static final long[] BOUNDS_MS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long micros) {
+        int bucket = 0;
+        while (bucket < BOUNDS_MS.length && micros > BOUNDS_MS[bucket] * 1000) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / 1000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /** Stima del percentile (0-1) in millisecondi; oltre l'ultimo limite restituisce il massimo. */
+    public double percentileMillis(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile * n);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= target) {
+                return Math.min(BOUNDS_MS[i], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /** Conteggi per bucket, con chiave il limite superiore in millisecondi ("+Inf" per l'ultimo). */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            result.put(String.valueOf(BOUNDS_MS[i]), buckets[i].sum());
+        }
+        result.put("+Inf", buckets[BOUNDS_MS.length].sum());
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+package it.overzoom.taf.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Indice spaziale in memoria per il point-in-polygon: una griglia uniforme
+ * sul rettangolo che contiene tutti i poligoni, dove ogni cella elenca i
+ * poligoni il cui bounding box la interseca. Una ricerca legge una cella,
+ * scarta i candidati per bounding box e verifica i rimanenti con il ray
+ * casting. Le coordinate seguono l'ordine GeoJSON: [longitudine, latitudine].
+ *
+ * Immutabile dopo la costruzione, quindi condivisibile tra thread.
+ */
+public final class PolygonGridIndex<T> {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final List<Shape<T>> shapes;
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+    private final int[][] cells;
+
+    private PolygonGridIndex(List<Shape<T>> shapes, double cellsPerShape) {
+        this.shapes = shapes;
+        if (shapes.isEmpty()) {
+            this.minX = 0;
+            this.minY = 0;
+            this.cellWidth = 1;
+            this.cellHeight = 1;
+            this.columns = 0;
+            this.rows = 0;
+            this.cells = new int[0][];
+            return;
+        }
+
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (Shape<T> shape : shapes) {
+            x0 = Math.min(x0, shape.minX);
+            y0 = Math.min(y0, shape.minY);
+            x1 = Math.max(x1, shape.maxX);
+            y1 = Math.max(y1, shape.maxY);
+        }
+        double width = Math.max(x1 - x0, 1e-9);
+        double height = Math.max(y1 - y0, 1e-9);
+
+        // Celle quadrate in gradi, in numero proporzionale ai poligoni
+        double cellSize = Math.sqrt(width * height / Math.max(1, shapes.size() * cellsPerShape));
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.minX = x0;
+        this.minY = y0;
+        this.cellWidth = width / columns;
+        this.cellHeight = height / rows;
+
+        List<List<Integer>> buckets = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            buckets.add(null);
+        }
+        for (int s = 0; s < shapes.size(); s++) {
+            Shape<T> shape = shapes.get(s);
+            int c0 = column(shape.minX), c1 = column(shape.maxX);
+            int r0 = row(shape.minY), r1 = row(shape.maxY);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = r * columns + c;
+                    if (buckets.get(cell) == null) {
+                        buckets.set(cell, new ArrayList<>(4));
+                    }
+                    buckets.get(cell).add(s);
+                }
+            }
+        }
+        this.cells = new int[columns * rows][];
+        for (int i = 0; i < cells.length; i++) {
+            List<Integer> bucket = buckets.get(i);
+            cells[i] = bucket == null ? EMPTY : bucket.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public Optional<T> find(double latitude, double longitude) {
+        if (cells.length == 0 || longitude < minX || latitude < minY
+                || longitude > minX + cellWidth * columns || latitude > minY + cellHeight * rows) {
+            return Optional.empty();
+        }
+        for (int s : cells[row(latitude) * columns + column(longitude)]) {
+            Shape<T> shape = shapes.get(s);
+            if (shape.contains(longitude, latitude)) {
+                return Optional.of(shape.value);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public int size() {
+        return shapes.size();
+    }
+
+    private int column(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) / cellWidth)));
+    }
+
+    private int row(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - minY) / cellHeight)));
+    }
+
+    public static final class Builder<T> {
+
+        private final List<Shape<T>> shapes = new ArrayList<>();
+        private double cellsPerShape = 2.0;
+
+        private Builder() {
+        }
+
+        /**
+         * Aggiunge un MultiPolygon GeoJSON: poligoni, anelli (il primo esterno,
+         * gli altri buchi), punti [lon, lat]. Con la regola pari/dispari buchi ed
+         * exclavi non richiedono trattamento separato.
+         */
+        public Builder<T> add(T value, double[][][][] multiPolygon) {
+            List<double[]> xs = new ArrayList<>();
+            List<double[]> ys = new ArrayList<>();
+            for (double[][][] polygon : multiPolygon) {
+                for (double[][] ring : polygon) {
+                    if (ring.length < 3) {
+                        continue;
+                    }
+                    double[] rx = new double[ring.length];
+                    double[] ry = new double[ring.length];
+                    for (int i = 0; i < ring.length; i++) {
+                        rx[i] = ring[i][0];
+                        ry[i] = ring[i][1];
+                    }
+                    xs.add(rx);
+                    ys.add(ry);
+                }
+            }
+            if (!xs.isEmpty()) {
+                shapes.add(new Shape<>(value, xs.toArray(new double[0][]), ys.toArray(new double[0][])));
+            }
+            return this;
+        }
+
+        public Builder<T> cellsPerShape(double cellsPerShape) {
+            this.cellsPerShape = cellsPerShape;
+            return this;
+        }
+
+        public PolygonGridIndex<T> build() {
+            return new PolygonGridIndex<>(List.copyOf(shapes), cellsPerShape);
+        }
+    }
+
+    private static final class Shape<T> {
+
+        private final T value;
+        private final double[][] xs;
+        private final double[][] ys;
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+
+        private Shape(T value, double[][] xs, double[][] ys) {
+            this.value = value;
+            this.xs = xs;
+            this.ys = ys;
+            double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+            for (int r = 0; r < xs.length; r++) {
+                for (int i = 0; i < xs[r].length; i++) {
+                    x0 = Math.min(x0, xs[r][i]);
+                    x1 = Math.max(x1, xs[r][i]);
+                    y0 = Math.min(y0, ys[r][i]);
+                    y1 = Math.max(y1, ys[r][i]);
+                }
+            }
+            this.minX = x0;
+            this.minY = y0;
+            this.maxX = x1;
+            this.maxY = y1;
+        }
+
+        private boolean contains(double x, double y) {
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                return false;
+            }
+            boolean inside = false;
+            for (int r = 0; r < xs.length; r++) {
+                double[] rx = xs[r];
+                double[] ry = ys[r];
+                for (int i = 0, j = rx.length - 1; i < rx.length; j = i++) {
+                    if ((ry[i] > y) != (ry[j] > y)
+                            && x < (rx[j] - rx[i]) * (y - ry[i]) / (ry[j] - ry[i]) + rx[i]) {
+                        inside = !inside;
+                    }
+                }
+            }
+            return inside;
+        }
+    }
+}
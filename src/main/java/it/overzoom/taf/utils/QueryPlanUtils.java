@@ -0,0 +1,97 @@
+package it.overzoom.taf.utils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+
+/**
+ * Lettura dei risultati di explain e forma delle query, condivise dal
+ * campionamento dei piani di /search e dal monitor dei comandi Mongo.
+ */
+public final class QueryPlanUtils {
+
+    private static final String PLACEHOLDER = "?";
+
+    private QueryPlanUtils() {
+    }
+
+    /**
+     * Forma di un filtro o di un comando: stessi campi e operatori, valori
+     * sostituiti da "?". Le liste di documenti ($and, $or, pipeline) restano
+     * liste, le altre diventano un solo segnaposto. Accetta sia Document sia
+     * BsonDocument.
+     */
+    public static Document shapeOf(Map<?, ?> document) {
+        Document shape = new Document();
+        document.forEach((key, value) -> shape.put(String.valueOf(key), shapeOfValue(value)));
+        return shape;
+    }
+
+    private static Object shapeOfValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return shapeOf(map);
+        }
+        if (value instanceof List<?> list && !list.isEmpty() && list.stream().allMatch(Map.class::isInstance)) {
+            return list.stream().map(item -> shapeOf((Map<?, ?>) item)).toList();
+        }
+        return PLACEHOLDER;
+    }
+
+    /**
+     * Piano vincente di un explain, anche quando è annidato (aggregazioni con
+     * $cursor, cluster con shard); null se non presente.
+     */
+    public static Document winningPlan(Document explain) {
+        if (explain.get("queryPlanner") instanceof Document planner
+                && planner.get("winningPlan") instanceof Document plan) {
+            return plan;
+        }
+        for (Object value : explain.values()) {
+            Document plan = findWinningPlan(value);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        return null;
+    }
+
+    private static Document findWinningPlan(Object value) {
+        if (value instanceof Document document) {
+            return winningPlan(document);
+        }
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                Document plan = findWinningPlan(item);
+                if (plan != null) {
+                    return plan;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Stadi del piano nell'ordine di visita, compresi quelli annidati (inputStage, piani SBE e shard). */
+    public static Set<String> stagesOf(Document plan) {
+        Set<String> stages = new LinkedHashSet<>();
+        collectStages(plan, stages);
+        return stages;
+    }
+
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document stage) {
+            if (stage.get("stage") instanceof String name) {
+                stages.add(name);
+            }
+            collectStages(stage.get("inputStage"), stages);
+            collectStages(stage.get("inputStages"), stages);
+            collectStages(stage.get("queryPlan"), stages);
+            collectStages(stage.get("winningPlan"), stages);
+            collectStages(stage.get("shards"), stages);
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectStages(item, stages));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package it.overzoom.taf.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.apache.coyote.BadRequestException;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Cursore opaco per la paginazione keyset: contiene i valori dei campi di
+ * ordinamento (incluso _id) dell'ultimo elemento restituito, serializzati in
+ * Extended JSON e codificati in Base64 URL-safe. La firma dell'ordinamento
+ * impedisce di riutilizzare un cursore con un sort diverso.
+ */
+public final class SearchCursor {
+
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private SearchCursor() {
+    }
+
+    public static String encode(Sort sort, Document lastDocument) {
+        List<Object> values = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            values.add(valueAt(lastDocument, order.getProperty()));
+        }
+        Document cursor = new Document("s", signature(sort)).append("v", values);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toJson(JSON).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static List<Object> decode(String cursor, Sort sort) throws BadRequestException {
+        Document decoded;
+        try {
+            decoded = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Cursore non valido.");
+        }
+        List<Object> values = decoded.getList("v", Object.class);
+        if (!signature(sort).equals(decoded.getString("s")) || values == null
+                || values.size() != sort.stream().count()) {
+            throw new BadRequestException("Il cursore non corrisponde all'ordinamento richiesto.");
+        }
+        return values;
+    }
+
+    // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... rispettando la direzione di ogni campo
+    public static Criteria after(Sort sort, List<Object> values) {
+        List<Sort.Order> orders = sort.toList();
+        List<Criteria> branches = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            Object value = values.get(i);
+            Criteria next = Criteria.where(order.getProperty());
+            if (value == null) {
+                // null precede ogni altro valore: in ordine discendente non c'è nulla dopo
+                if (order.isDescending()) {
+                    continue;
+                }
+                next.ne(null);
+            } else if (order.isAscending()) {
+                next.gt(value);
+            } else {
+                // In ordine discendente null e campi mancanti seguono ogni altro valore
+                next = new Criteria().orOperator(Criteria.where(order.getProperty()).lt(value),
+                        Criteria.where(order.getProperty()).is(null));
+            }
+
+            List<Criteria> branch = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                branch.add(Criteria.where(orders.get(j).getProperty()).is(values.get(j)));
+            }
+            branch.add(next);
+            branches.add(branch.size() == 1 ? next : new Criteria().andOperator(branch.toArray(new Criteria[0])));
+        }
+        if (branches.isEmpty()) {
+            // Nessun elemento può seguire il cursore
+            return Criteria.where("_id").exists(false);
+        }
+        return new Criteria().orOperator(branches.toArray(new Criteria[0]));
+    }
+
+    private static String signature(Sort sort) {
+        StringBuilder signature = new StringBuilder();
+        for (Sort.Order order : sort) {
+            signature.append(order.getProperty()).append(order.isAscending() ? ":1," : ":-1,");
+        }
+        return signature.toString();
+    }
+
+    private static Object valueAt(Document document, String path) {
+        Object current = document;
+        for (String part : path.split("\\.")) {
+            if (!(current instanceof Document doc)) {
+                return null;
+            }
+            current = doc.get(part);
+        }
+        return current;
+    }
+}
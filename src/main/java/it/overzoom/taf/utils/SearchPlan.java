@@ -0,0 +1,82 @@
+package it.overzoom.taf.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.CriteriaDefinition;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+
+import it.overzoom.taf.dto.SearchRequest;
+
+/**
+ * Piano compilato da {@link SearchPlanner} per una forma di richiesta: le
+ * clausole del filtro, già risolte sui campi, e l'ordinamento. Immutabile e
+ * condiviso tra le richieste.
+ */
+public final class SearchPlan {
+
+    private final List<Function<SearchRequest, Document>> clauses;
+    private final Sort sort;
+    private final boolean textSearch;
+
+    SearchPlan(List<Function<SearchRequest, Document>> clauses, Sort sort, boolean textSearch) {
+        this.clauses = List.copyOf(clauses);
+        this.sort = sort;
+        this.textSearch = textSearch;
+    }
+
+    /** Ordinamento richiesto o quello di default della risorsa; null se non previsto. */
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean isTextSearch() {
+        return textSearch;
+    }
+
+    /**
+     * Costruisce la query con i valori della richiesta. I criteri passati
+     * (visibilità dell'utente, cursore) precedono le clausole del piano, tutti
+     * in AND.
+     */
+    public Query bind(SearchRequest request, List<? extends CriteriaDefinition> criteria) {
+        List<Document> filter = new ArrayList<>(criteria.size() + clauses.size());
+        for (CriteriaDefinition definition : criteria) {
+            Document document = definition.getCriteriaObject();
+            if (!document.isEmpty()) {
+                filter.add(document);
+            }
+        }
+        for (Function<SearchRequest, Document> clause : clauses) {
+            filter.add(clause.apply(request));
+        }
+
+        Query query = textSearch ? new TextQuery(TextCriteria.forDefaultLanguage().matching(request.getSearch()))
+                : new Query();
+        if (filter.size() == 1) {
+            query.addCriteria(new DocumentCriteria(filter.get(0)));
+        } else if (!filter.isEmpty()) {
+            query.addCriteria(new DocumentCriteria(new Document("$and", filter)));
+        }
+        return query;
+    }
+
+    // Filtro già in forma di documento, aggiunto alla query così com'è
+    private record DocumentCriteria(Document document) implements CriteriaDefinition {
+
+        @Override
+        public Document getCriteriaObject() {
+            return document;
+        }
+
+        @Override
+        public String getKey() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package it.overzoom.taf.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.bson.BsonRegularExpression;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import it.overzoom.taf.dto.SearchRequest;
+import it.overzoom.taf.type.FilterMode;
+
+/**
+ * Traduce le richieste di ricerca in query Mongo. Le richieste con la stessa
+ * forma (chiavi dei filtri e tipo dei valori, ordinamento, bbox e modalità di
+ * ricerca) condividono un {@link SearchPlan} compilato una volta e tenuto in
+ * cache: per ogni richiesta restano solo la lettura dei valori e la
+ * costruzione dei documenti BSON.
+ *
+ * I filtri stringa seguono il {@link FilterMode} dichiarato per il campo
+ * (CONTAINS se assente); PREFIX interroga il campo normalizzato
+ * {@link #normalizedField(String)}, valorizzato con {@link TextAnalyzer#fold}.
+ */
+public final class SearchPlanner {
+
+    public static final int DEFAULT_MAX_PLANS = 1000;
+
+    private static final String SEARCH_REGEX = "regex";
+    private static final String NORMALIZED_SUFFIX = "Normalized";
+
+    /** Forma della richiesta: chiave della cache dei piani. */
+    public record Shape(List<FilterShape> filters, List<Map.Entry<String, String>> sort, boolean bbox,
+            SearchMode search) {
+    }
+
+    public record FilterShape(String key, FilterKind kind) {
+    }
+
+    public enum FilterKind {
+        // Lista non vuota: almeno uno dei valori
+        IN,
+        // Stringa non vuota, secondo il FilterMode del campo
+        EXACT, PREFIX, CONTAINS
+    }
+
+    public enum SearchMode {
+        NONE, TEXT, REGEX
+    }
+
+    private final List<String> searchableFields;
+    private final boolean textIndex;
+    private final String geoLocationField;
+    private final Map<String, FilterMode> filterModes;
+    private final Function<Map<String, String>, Sort> sortBuilder;
+    private final Cache<Shape, SearchPlan> plans;
+
+    public SearchPlanner(List<String> searchableFields, boolean textIndex, String geoLocationField,
+            Map<String, FilterMode> filterModes, Function<Map<String, String>, Sort> sortBuilder, int maxPlans) {
+        this.searchableFields = List.copyOf(searchableFields);
+        this.textIndex = textIndex;
+        this.geoLocationField = geoLocationField;
+        this.filterModes = Map.copyOf(filterModes);
+        this.sortBuilder = sortBuilder;
+        this.plans = Caffeine.newBuilder().maximumSize(maxPlans).build();
+    }
+
+    /** Campo con il valore normalizzato usato dai filtri PREFIX (es. title → titleNormalized). */
+    public static String normalizedField(String field) {
+        return field + NORMALIZED_SUFFIX;
+    }
+
+    /** Piano della richiesta, compilato solo la prima volta che se ne incontra la forma. */
+    public SearchPlan plan(SearchRequest request) {
+        return plans.get(shapeOf(request), this::compile);
+    }
+
+    public Shape shapeOf(SearchRequest request) {
+        List<FilterShape> filters = new ArrayList<>();
+        request.getFilters().forEach((key, value) -> {
+            if ("municipalityIds".equals(key) || "municipalityId".equals(key)) {
+                return;
+            }
+            if (value instanceof List<?> list && !list.isEmpty()) {
+                filters.add(new FilterShape(key, FilterKind.IN));
+            } else if (value instanceof String text && !text.isEmpty()) {
+                FilterMode mode = filterModes.getOrDefault(key, FilterMode.CONTAINS);
+                filters.add(new FilterShape(key, FilterKind.valueOf(mode.name())));
+            }
+        });
+
+        List<Map.Entry<String, String>> sort = new ArrayList<>();
+        request.getSort().forEach((field, direction) -> {
+            if (field != null && direction != null) {
+                sort.add(Map.entry(field, direction));
+            }
+        });
+
+        boolean bbox = request.getBbox() != null && request.getBbox().isComplete();
+        return new Shape(List.copyOf(filters), List.copyOf(sort), bbox, searchModeOf(request));
+    }
+
+    // Con l'indice testuale il termine usa $text, salvo richiesta esplicita di regex
+    private SearchMode searchModeOf(SearchRequest request) {
+        String search = request.getSearch();
+        if (search == null || search.isEmpty()) {
+            return SearchMode.NONE;
+        }
+        if (textIndex && !search.isBlank() && !SEARCH_REGEX.equalsIgnoreCase(request.getSearchMode())) {
+            return SearchMode.TEXT;
+        }
+        return searchableFields.isEmpty() ? SearchMode.NONE : SearchMode.REGEX;
+    }
+
+    /** Compila il piano senza passare dalla cache. */
+    public SearchPlan compile(Shape shape) {
+        List<Function<SearchRequest, Document>> clauses = new ArrayList<>();
+
+        if (shape.bbox()) {
+            clauses.add(geoLocationField != null ? this::geoWithin : SearchPlanner::latitudeLongitude);
+        }
+
+        for (FilterShape filter : shape.filters()) {
+            String key = filter.key();
+            switch (filter.kind()) {
+                // Su un campo array $in vale come "almeno uno presente"
+                case IN -> clauses.add(request -> new Document(key,
+                        new Document("$in", request.getFilters().get(key))));
+                case EXACT -> clauses.add(request -> new Document(key, request.getFilters().get(key)));
+                case PREFIX -> {
+                    String normalized = normalizedField(key);
+                    clauses.add(request -> new Document(normalized,
+                            startsWith(TextAnalyzer.fold((String) request.getFilters().get(key)))));
+                }
+                case CONTAINS -> clauses.add(request -> new Document(key,
+                        contains((String) request.getFilters().get(key))));
+            }
+        }
+
+        if (shape.search() == SearchMode.REGEX) {
+            clauses.add(request -> {
+                BsonRegularExpression regex = contains(request.getSearch());
+                List<Document> or = new ArrayList<>(searchableFields.size());
+                for (String field : searchableFields) {
+                    or.add(new Document(field, regex));
+                }
+                return new Document("$or", or);
+            });
+        }
+
+        Map<String, String> sortMap = new LinkedHashMap<>();
+        shape.sort().forEach(entry -> sortMap.put(entry.getKey(), entry.getValue()));
+        return new SearchPlan(clauses, sortBuilder.apply(sortMap), shape.search() == SearchMode.TEXT);
+    }
+
+    private Document geoWithin(SearchRequest request) {
+        SearchRequest.BoundingBox bbox = request.getBbox();
+        return Criteria.where(geoLocationField)
+                .within(GeoUtils.boundingBox(bbox.getNorth(), bbox.getSouth(), bbox.getEast(), bbox.getWest()))
+                .getCriteriaObject();
+    }
+
+    private static Document latitudeLongitude(SearchRequest request) {
+        SearchRequest.BoundingBox bbox = request.getBbox();
+        return new Document("latitude", new Document("$gte", bbox.getSouth()).append("$lte", bbox.getNorth()))
+                .append("longitude", new Document("$gte", bbox.getWest()).append("$lte", bbox.getEast()));
+    }
+
+    private static BsonRegularExpression contains(String text) {
+        return new BsonRegularExpression(Pattern.quote(text), "i");
+    }
+
+    // Ancorata, senza opzioni e con i caratteri speciali escapati uno per uno: Mongo la
+    // riconosce come prefisso semplice e la traduce in un intervallo sull'indice
+    private static BsonRegularExpression startsWith(String text) {
+        StringBuilder pattern = new StringBuilder(text.length() + 8).append('^');
+        text.codePoints().forEach(codePoint -> {
+            if (!Character.isLetterOrDigit(codePoint) && codePoint != ' ') {
+                pattern.append('\\');
+            }
+            pattern.appendCodePoint(codePoint);
+        });
+        return new BsonRegularExpression(pattern.toString());
+    }
+}
@@ -0,0 +1,86 @@
+package it.overzoom.taf.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Analisi del testo per l'indice dei suggerimenti e i filtri per prefisso.
+ *
+ * {@link #terms} produce i termini dell'indice dei suggerimenti: minuscole,
+ * rimozione degli accenti, parole vuote italiane e uno stemming leggero che
+ * toglie la vocale finale di genere/numero ("ristorante", "ristoranti" →
+ * "ristorant"). Lo stem è sempre un prefisso della parola, quindi resta
+ * valido per la ricerca per prefisso.
+ *
+ * {@link #fold} serve ai filtri PREFIX di /search: solo minuscole, accenti
+ * rimossi e spazi compattati, senza parole vuote né stemming.
+ */
+public final class TextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MIN_STEM_LENGTH = 4;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "ad", "al", "alla", "alle", "agli", "ai", "all", "che", "con", "col", "da", "dal", "dalla",
+            "dalle", "dai", "dagli", "dall", "de", "dei", "del", "dell", "della", "delle", "degli", "di", "e", "ed",
+            "fra", "gli", "i", "il", "in", "l", "la", "le", "lo", "nei", "nel", "nell", "nella", "nelle", "negli",
+            "o", "per", "su", "sul", "sull", "sulla", "sulle", "sui", "tra", "un", "una", "uno");
+
+    private TextAnalyzer() {
+    }
+
+    /** Parole normalizzate, senza accenti e punteggiatura. */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ITALIAN))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Testo intero in minuscolo e senza accenti, spazi compresi: è il valore dei
+     * campi normalizzati usati dai filtri per prefisso.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return null;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(folded.toLowerCase(Locale.ITALIAN)).replaceAll(" ").trim();
+    }
+
+    /** Termini da indicizzare: parole vuote escluse e stemming applicato. */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(text)) {
+            if (!isStopword(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    public static boolean isStopword(String token) {
+        return STOPWORDS.contains(token);
+    }
+
+    public static String stem(String token) {
+        if (token.length() > MIN_STEM_LENGTH && "aeio".indexOf(token.charAt(token.length() - 1)) >= 0) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
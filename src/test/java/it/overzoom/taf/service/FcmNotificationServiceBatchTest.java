@@ -0,0 +1,81 @@
+package it.overzoom.taf.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.overzoom.taf.dto.FcmCredentialStatsDTO;
+import it.overzoom.taf.dto.FcmSendResult;
+import it.overzoom.taf.type.FcmSendStatus;
+
+class FcmNotificationServiceBatchTest {
+
+    private static final int TOKENS = 200;
+    private static final int MAX_IN_FLIGHT = 8;
+
+    private FcmNotificationServiceImpl newService(String url, int maxInFlight) {
+        FcmCredentialProvider credentials = new FcmCredentialProvider() {
+            @Override
+            public String getAccessToken() {
+                return "test-token";
+            }
+
+            @Override
+            public FcmCredentialStatsDTO getStats() {
+                return new FcmCredentialStatsDTO();
+            }
+        };
+        return new FcmNotificationServiceImpl(credentials, new SimpleMeterRegistry(), url, maxInFlight, 8, 300, 30);
+    }
+
+    @Test
+    void batchReportsPerTokenResults() throws Exception {
+        try (MockFcmServer server = new MockFcmServer(0)) {
+            FcmNotificationServiceImpl service = newService(server.url(), 16);
+            try {
+                List<FcmSendResult> results = service.sendNotifications(
+                        List.of("valid-1", "invalid-1", "malformed-1", "valid-2"), "Titolo", "Testo \"quotato\"",
+                        Map.of("type", "EVENT"));
+
+                assertThat(results).extracting(FcmSendResult::getToken)
+                        .containsExactly("valid-1", "invalid-1", "malformed-1", "valid-2");
+                // INVALID_ARGUMENT che non riguarda message.token è un errore del messaggio, non del token
+                assertThat(results).extracting(FcmSendResult::getStatus)
+                        .containsExactly(FcmSendStatus.SENT, FcmSendStatus.INVALID_TOKEN, FcmSendStatus.FAILED,
+                                FcmSendStatus.SENT);
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void batchNeverExceedsTheInFlightLimit() throws Exception {
+        List<String> tokens = new ArrayList<>(TOKENS);
+        for (int i = 0; i < TOKENS; i++) {
+            tokens.add((i % 50 == 0 ? "invalid-" : "token-") + i);
+        }
+
+        try (MockFcmServer server = new MockFcmServer(5)) {
+            FcmNotificationServiceImpl service = newService(server.url(), MAX_IN_FLIGHT);
+            try {
+                List<FcmSendResult> results = service.sendNotifications(tokens, "Nuovo evento", "Testo",
+                        Map.of("entityId", "event-1"));
+
+                assertThat(server.requests()).isEqualTo(TOKENS);
+                assertThat(server.maxInFlight()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+                assertThat(results).filteredOn(r -> r.getStatus() == FcmSendStatus.SENT)
+                        .hasSize(TOKENS - TOKENS / 50);
+                assertThat(results).filteredOn(r -> r.getStatus() == FcmSendStatus.INVALID_TOKEN)
+                        .hasSize(TOKENS / 50);
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package it.overzoom.taf.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Server FCM fittizio per i test: risponde come l'endpoint v1 messages:send,
+ * restituendo UNREGISTERED per i token che iniziano con "invalid",
+ * INVALID_ARGUMENT senza riferimento al token per quelli che iniziano con
+ * "malformed" e una latenza configurabile. Tiene il massimo di richieste
+ * servite in contemporanea.
+ */
+class MockFcmServer implements AutoCloseable {
+
+    private static final byte[] OK_BODY = "{\"name\":\"projects/mock/messages/1\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNREGISTERED_BODY = ("{\"error\":{\"code\":404,\"message\":\"Requested entity was not found.\","
+            + "\"status\":\"NOT_FOUND\",\"details\":[{\"errorCode\":\"UNREGISTERED\"}]}}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INVALID_ARGUMENT_BODY = ("{\"error\":{\"code\":400,"
+            + "\"message\":\"Invalid JSON payload\",\"status\":\"INVALID_ARGUMENT\","
+            + "\"details\":[{\"fieldViolations\":[{\"field\":\"message.data\"}]}]}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    MockFcmServer(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/v1/projects/mock/messages:send", this::handle);
+        this.server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/projects/mock/messages:send";
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            respond(exchange);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String payload;
+        try (InputStream in = exchange.getRequestBody()) {
+            payload = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int status = 200;
+        byte[] body = OK_BODY;
+        if (payload.contains("\"token\":\"invalid")) {
+            status = 404;
+            body = UNREGISTERED_BODY;
+        } else if (payload.contains("\"token\":\"malformed")) {
+            status = 400;
+            body = INVALID_ARGUMENT_BODY;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
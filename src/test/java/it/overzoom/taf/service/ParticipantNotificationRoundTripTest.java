@@ -0,0 +1,146 @@
+package it.overzoom.taf.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.overzoom.taf.dto.FcmSendResult;
+import it.overzoom.taf.dto.PushJobStatusDTO;
+import it.overzoom.taf.model.Event;
+import it.overzoom.taf.model.EventRegistration;
+import it.overzoom.taf.model.User;
+import it.overzoom.taf.repository.EventRegistrationRepository;
+import it.overzoom.taf.repository.EventRepository;
+import it.overzoom.taf.repository.UserRepository;
+import it.overzoom.taf.type.FcmSendStatus;
+import it.overzoom.taf.type.NotificationType;
+import it.overzoom.taf.type.PushJobStatus;
+
+/**
+ * Conta i round-trip verso MongoDB necessari per notificare i partecipanti di
+ * un evento aggiornato: una lettura delle iscrizioni e una query $in ogni
+ * push.fanout.batch-size partecipanti, senza letture per singolo utente.
+ */
+class ParticipantNotificationRoundTripTest {
+
+    private static final int PARTICIPANTS = 2_000;
+    private static final int BATCH_SIZE = 500;
+
+    private final List<String> participantIds = IntStream.range(0, PARTICIPANTS)
+            .mapToObj(i -> String.format("%024x", i))
+            .toList();
+
+    @Test
+    void partialUpdateDelegatesToSingleFanoutJob() throws Exception {
+        EventRepository eventRepository = mock(EventRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        PushFanoutService pushFanoutService = mock(PushFanoutService.class);
+        EventRegistrationRepository registrationRepository = mock(EventRegistrationRepository.class);
+
+        Event existing = new Event();
+        existing.setId("event-1");
+        existing.setTitle("Concerto");
+        when(eventRepository.findById("event-1")).thenReturn(Optional.of(existing));
+        when(registrationRepository.streamUserIdsByEventId("event-1")).thenAnswer(invocation -> participantIds
+                .stream()
+                .map(userId -> {
+                    EventRegistration registration = new EventRegistration();
+                    registration.setUserId(userId);
+                    return registration;
+                }));
+
+        EventServiceImpl service = new EventServiceImpl(eventRepository, mock(PhotoService.class),
+                notificationService, userRepository, pushFanoutService, mock(MongoTemplate.class),
+                registrationRepository, mock(SuggestIndex.class));
+
+        Event patch = new Event();
+        patch.setTitle("Concerto spostato");
+        service.partialUpdate("event-1", patch);
+
+        verifyNoInteractions(userRepository, notificationService);
+        verify(registrationRepository, times(1)).streamUserIdsByEventId("event-1");
+        verify(pushFanoutService, times(1)).submitToUsers(eq(participantIds),
+                eq(NotificationType.SUBSCRIPTION_EVENTS), anyString(), anyString(), anyMap());
+    }
+
+    @Test
+    void fanoutResolvesParticipantsWithChunkedInQueries() throws Exception {
+        UserRepository userRepository = mock(UserRepository.class);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        FcmNotificationService fcmNotificationService = mock(FcmNotificationService.class);
+
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Document in = (Document) query.getQueryObject().get("_id");
+            List<?> ids = (List<?>) in.get("$in");
+            return ids.stream().map(id -> {
+                User user = new User();
+                user.setId(id.toString());
+                user.setFcmToken("token-" + id);
+                return user;
+            });
+        });
+        when(fcmNotificationService.sendNotifications(anyList(), anyString(), anyString(), anyMap()))
+                .thenAnswer(invocation -> {
+                    List<String> tokens = invocation.getArgument(0);
+                    return tokens.stream()
+                            .map(token -> new FcmSendResult(token, FcmSendStatus.SENT, 200, null))
+                            .toList();
+                });
+
+        PushFanoutServiceImpl fanout = new PushFanoutServiceImpl(userRepository, fcmNotificationService,
+                mongoTemplate, mock(NotificationOutboxService.class), new SimpleMeterRegistry(), 10, 1, BATCH_SIZE,
+                10);
+        try {
+            PushJobStatusDTO job = fanout.submitToUsers(participantIds, NotificationType.SUBSCRIPTION_EVENTS,
+                    "Aggiornamento", "Dettagli", Map.of("eventId", "event-1"));
+            PushJobStatusDTO status = awaitCompletion(fanout, job.getJobId());
+
+            long after = roundTrips(userRepository, mongoTemplate);
+
+            assertThat(status.getStatus()).isEqualTo(PushJobStatus.COMPLETED);
+            assertThat(status.getSent()).isEqualTo(PARTICIPANTS);
+            verify(mongoTemplate, times(PARTICIPANTS / BATCH_SIZE)).stream(any(Query.class), eq(User.class));
+            assertThat(after).isEqualTo(PARTICIPANTS / BATCH_SIZE);
+        } finally {
+            fanout.shutdown();
+        }
+    }
+
+    private static long roundTrips(UserRepository userRepository, MongoTemplate mongoTemplate) {
+        return mockingDetails(mongoTemplate).getInvocations().size()
+                + mockingDetails(userRepository).getInvocations().size();
+    }
+
+    private PushJobStatusDTO awaitCompletion(PushFanoutService fanout, String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            PushJobStatusDTO status = fanout.getJobStatus(jobId).orElseThrow();
+            if (status.getStatus() == PushJobStatus.COMPLETED || status.getStatus() == PushJobStatus.FAILED) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job di fan-out non completato: " + jobId);
+    }
+}
@@ -0,0 +1,72 @@
+package it.overzoom.taf.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import it.overzoom.taf.dto.SuggestionDTO;
+import it.overzoom.taf.model.Activity;
+import it.overzoom.taf.model.Event;
+import it.overzoom.taf.type.SuggestType;
+
+class SuggestIndexImplTest {
+
+    private final SuggestIndexImpl index = new SuggestIndexImpl(mock(MongoTemplate.class), 100);
+
+    @Test
+    void matchesLastWordByPrefixWithinTheRequestedMunicipalities() {
+        index.put(activity("a1", "Ristorante Da Nicola", "trani"));
+        index.put(activity("a2", "Pizzeria Nicolò", "bisceglie"));
+        index.put(activity("a3", "Ristoranti del porto", "trani"));
+
+        assertThat(labels(index.suggest("risto", List.of("trani"), null, 10)))
+                .containsExactly("Ristorante Da Nicola", "Ristoranti del porto");
+        assertThat(labels(index.suggest("ristorante nic", List.of("trani"), null, 10)))
+                .containsExactly("Ristorante Da Nicola");
+        assertThat(labels(index.suggest("nicolo", null, null, 10)))
+                .containsExactly("Pizzeria Nicolò", "Ristorante Da Nicola");
+    }
+
+    @Test
+    void dropsRemovedCancelledAndExpiredEntries() {
+        index.put(event("e1", "Concerto in piazza", LocalDateTime.now().plusDays(1)));
+        index.put(event("e2", "Concerto d'estate", LocalDateTime.now().minusDays(1)));
+        index.put(activity("a1", "Conceria storica", "trani"));
+        index.remove(SuggestType.ACTIVITY, "a1");
+
+        assertThat(labels(index.suggest("conc", List.of("trani"), Set.of(SuggestType.EVENT), 10)))
+                .containsExactly("Concerto in piazza");
+
+        Event cancelled = event("e1", "Concerto in piazza", LocalDateTime.now().plusDays(1));
+        cancelled.setIsCancelled(true);
+        index.put(cancelled);
+        assertThat(index.suggest("conc", List.of("trani"), null, 10)).isEmpty();
+    }
+
+    private static List<String> labels(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::getLabel).toList();
+    }
+
+    private static Activity activity(String id, String name, String municipalityId) {
+        Activity activity = new Activity();
+        activity.setId(id);
+        activity.setName(name);
+        activity.setMunicipalityId(municipalityId);
+        return activity;
+    }
+
+    private static Event event(String id, String title, LocalDateTime endDateTime) {
+        Event event = new Event();
+        event.setId(id);
+        event.setTitle(title);
+        event.setEndDateTime(endDateTime);
+        event.setMunicipalityId("trani");
+        return event;
+    }
+}
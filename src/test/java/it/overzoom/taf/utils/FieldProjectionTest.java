@@ -0,0 +1,45 @@
+package it.overzoom.taf.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+
+class FieldProjectionTest {
+
+    private static final Map<String, List<String>> VIEWS = Map.of(
+            "card", List.of("title", "cover"),
+            "detail", List.of("title", "cover", "description", "startDateTime"));
+
+    @Test
+    void fieldsTakePrecedenceOverViewAndAlwaysIncludeId() throws BadRequestException {
+        FieldProjection projection = FieldProjection.resolve("title, description", "card", VIEWS);
+
+        assertThat(projection.getFields()).containsExactlyInAnyOrder("id", "title", "description");
+        assertThat(FieldProjection.resolve(null, "CARD", VIEWS).getFields())
+                .containsExactlyInAnyOrder("id", "title", "cover");
+        assertThat(FieldProjection.resolve(List.of(), null, VIEWS).isAll()).isTrue();
+    }
+
+    @Test
+    void projectsRequiredFieldsOnlyWhenAProjectionIsActive() throws BadRequestException {
+        Query query = FieldProjection.resolve(List.of("title"), null, VIEWS).applyTo(new Query(),
+                List.of("startDateTime"));
+
+        assertThat(query.getFieldsObject().keySet()).containsExactlyInAnyOrder("id", "title", "startDateTime");
+        assertThat(FieldProjection.all().applyTo(new Query()).getFieldsObject()).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndViews() {
+        assertThatThrownBy(() -> FieldProjection.resolve("title,password", null, VIEWS))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> FieldProjection.resolve(null, "full", VIEWS))
+                .isInstanceOf(BadRequestException.class);
+    }
+}
@@ -0,0 +1,24 @@
+package it.overzoom.taf.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesUseTheBucketUpperBoundCappedAtTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(800);
+        }
+        histogram.record(40_000);
+        histogram.record(12_000_000);
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.percentileMillis(0.50)).isEqualTo(1);
+        assertThat(histogram.percentileMillis(0.99)).isEqualTo(50);
+        assertThat(histogram.percentileMillis(1.0)).isEqualTo(12_000);
+        assertThat(histogram.getBuckets()).containsEntry("1", 98L).containsEntry("50", 1L).containsEntry("+Inf", 1L);
+    }
+}
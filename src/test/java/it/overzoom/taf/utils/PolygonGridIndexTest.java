@@ -0,0 +1,40 @@
+package it.overzoom.taf.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PolygonGridIndexTest {
+
+    // Quadrato [0,10]x[0,10] con un buco [4,6]x[4,6]
+    private static final double[][][] SQUARE_WITH_HOLE = {
+            { { 0, 0 }, { 10, 0 }, { 10, 10 }, { 0, 10 }, { 0, 0 } },
+            { { 4, 4 }, { 6, 4 }, { 6, 6 }, { 4, 6 }, { 4, 4 } } };
+
+    // Il buco ospita un altro comune; un'exclave del primo sta a est
+    private static final double[][][] ENCLAVE = {
+            { { 4, 4 }, { 6, 4 }, { 6, 6 }, { 4, 6 }, { 4, 4 } } };
+    private static final double[][][] EXCLAVE = {
+            { { 20, 0 }, { 22, 0 }, { 22, 2 }, { 20, 2 }, { 20, 0 } } };
+
+    private final PolygonGridIndex<String> index = PolygonGridIndex.<String>builder()
+            .add("outer", new double[][][][] { SQUARE_WITH_HOLE, EXCLAVE })
+            .add("enclave", new double[][][][] { ENCLAVE })
+            .build();
+
+    @Test
+    void resolvesPointsInsidePolygonsHolesAndExclaves() {
+        // find riceve latitudine, longitudine: y prima di x
+        assertThat(index.find(1, 1)).contains("outer");
+        assertThat(index.find(5, 5)).contains("enclave");
+        assertThat(index.find(1, 21)).contains("outer");
+    }
+
+    @Test
+    void returnsEmptyOutsideEveryBoundary() {
+        assertThat(index.find(1, 15)).isEmpty();
+        assertThat(index.find(-1, -1)).isEmpty();
+        assertThat(index.find(50, 50)).isEmpty();
+        assertThat(PolygonGridIndex.<String>builder().build().find(0, 0)).isEmpty();
+    }
+}
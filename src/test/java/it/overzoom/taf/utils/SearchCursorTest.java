@@ -0,0 +1,125 @@
+package it.overzoom.taf.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+class SearchCursorTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private final List<Document> news = List.of(
+            news("n1", new Date(3_000)),
+            news("n2", null),
+            news("n3", new Date(1_000)),
+            news("n4", new Date(3_000)),
+            news("n5", null),
+            news("n6", new Date(2_000)),
+            new Document("_id", "n7"));
+
+    @Test
+    void descendingPagesReachDocumentsWithoutTheSortField() throws Exception {
+        Sort sort = Sort.by(Sort.Order.desc("publicationDate"), Sort.Order.asc("_id"));
+
+        assertThat(pageThrough(sort)).containsExactly("n1", "n4", "n6", "n3", "n2", "n5", "n7");
+    }
+
+    @Test
+    void ascendingPagesLeaveTheNullsAndContinueWithValues() throws Exception {
+        Sort sort = Sort.by(Sort.Order.asc("publicationDate"), Sort.Order.desc("_id"));
+
+        assertThat(pageThrough(sort)).containsExactly("n7", "n5", "n2", "n3", "n6", "n4", "n1");
+    }
+
+    // Scorre la collezione in memoria come farebbe /search/cursor, un cursore alla volta
+    private List<String> pageThrough(Sort sort) throws Exception {
+        List<Document> sorted = news.stream().sorted(comparator(sort)).toList();
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            List<Document> candidates = sorted;
+            if (cursor != null) {
+                Document filter = SearchCursor.after(sort, SearchCursor.decode(cursor, sort)).getCriteriaObject();
+                candidates = sorted.stream().filter(doc -> matches(doc, filter)).toList();
+            }
+            List<Document> page = candidates.subList(0, Math.min(PAGE_SIZE, candidates.size()));
+            page.forEach(doc -> ids.add(doc.getString("_id")));
+            if (page.size() < PAGE_SIZE) {
+                return ids;
+            }
+            cursor = SearchCursor.encode(sort, page.get(page.size() - 1));
+        }
+    }
+
+    // Ordinamento di MongoDB: null e campi mancanti precedono ogni altro valore
+    private static Comparator<Document> comparator(Sort sort) {
+        Comparator<Document> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            String property = order.getProperty();
+            Comparator<Document> field = (a, b) -> compare(a.get(property), b.get(property));
+            comparator = comparator.thenComparing(order.isAscending() ? field : field.reversed());
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    // Valutatore minimo degli operatori prodotti da SearchCursor.after
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean matches(Document doc, Document filter) {
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            String key = entry.getKey();
+            if (key.equals("$or")) {
+                if (((List<Document>) entry.getValue()).stream().noneMatch(branch -> matches(doc, branch))) {
+                    return false;
+                }
+                continue;
+            }
+            if (key.equals("$and")) {
+                if (!((List<Document>) entry.getValue()).stream().allMatch(branch -> matches(doc, branch))) {
+                    return false;
+                }
+                continue;
+            }
+            Object actual = doc.get(key);
+            if (!(entry.getValue() instanceof Document condition)) {
+                if (!Objects.equals(actual, entry.getValue())) {
+                    return false;
+                }
+                continue;
+            }
+            for (Map.Entry<String, Object> operator : condition.entrySet()) {
+                Object expected = operator.getValue();
+                boolean ok = switch (operator.getKey()) {
+                    case "$ne" -> !Objects.equals(actual, expected);
+                    case "$gt" -> actual != null && ((Comparable) actual).compareTo(expected) > 0;
+                    case "$lt" -> actual != null && ((Comparable) actual).compareTo(expected) < 0;
+                    default -> throw new IllegalArgumentException(operator.getKey());
+                };
+                if (!ok) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Document news(String id, Date publicationDate) {
+        return new Document("_id", id).append("publicationDate", publicationDate);
+    }
+}
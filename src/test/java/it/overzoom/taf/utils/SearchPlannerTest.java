@@ -0,0 +1,71 @@
+package it.overzoom.taf.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonRegularExpression;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextQuery;
+
+import it.overzoom.taf.dto.SearchRequest;
+import it.overzoom.taf.type.FilterMode;
+
+class SearchPlannerTest {
+
+    private final SearchPlanner planner = new SearchPlanner(List.of("title", "description"), true, null,
+            Map.of("type", FilterMode.EXACT, "title", FilterMode.PREFIX),
+            sortMap -> sortMap.isEmpty() ? null : Sort.by(sortMap.keySet().toArray(String[]::new)),
+            SearchPlanner.DEFAULT_MAX_PLANS);
+
+    @Test
+    void requestsWithTheSameShapeShareThePlanButBindTheirOwnValues() {
+        SearchRequest first = request(Map.of("type", List.of("SPORT"), "organizer", "pro loco"), null);
+        SearchRequest second = request(Map.of("type", List.of("MUSIC", "FOOD"), "organizer", "comune"), null);
+
+        SearchPlan plan = planner.plan(first);
+        assertThat(planner.plan(second)).isSameAs(plan);
+        assertThat(planner.plan(request(Map.of("type", List.of("SPORT")), null))).isNotSameAs(plan);
+
+        Document filter = plan.bind(second, List.of(Criteria.where("municipalityId").is("trani"))).getQueryObject();
+        assertThat(filter.getList("$and", Document.class)).containsExactlyInAnyOrder(
+                new Document("municipalityId", "trani"),
+                new Document("type", new Document("$in", List.of("MUSIC", "FOOD"))),
+                new Document("organizer", new BsonRegularExpression("\\Qcomune\\E", "i")));
+    }
+
+    @Test
+    void exactAndPrefixFiltersAreAnchoredForTheIndex() {
+        SearchRequest request = request(Map.of("type", "SPORT", "title", "Città (vecchia)"), null);
+
+        Document filter = planner.plan(request).bind(request, List.of()).getQueryObject();
+        assertThat(filter.getList("$and", Document.class)).containsExactlyInAnyOrder(
+                new Document("type", "SPORT"),
+                new Document("titleNormalized", new BsonRegularExpression("^citta \\(vecchia\\)")));
+    }
+
+    @Test
+    void searchUsesTheTextIndexUnlessRegexIsRequested() {
+        SearchRequest text = request(Map.of(), "sagra");
+        Query query = planner.plan(text).bind(text, List.of());
+        assertThat(query).isInstanceOf(TextQuery.class);
+
+        SearchRequest regex = request(Map.of(), "sagra");
+        regex.setSearchMode("regex");
+        Document filter = planner.plan(regex).bind(regex, List.of()).getQueryObject();
+        assertThat(filter.getList("$or", Document.class)).hasSize(2);
+    }
+
+    private static SearchRequest request(Map<String, Object> filters, String search) {
+        SearchRequest request = new SearchRequest();
+        request.setFilters(new LinkedHashMap<>(filters));
+        request.setSearch(search);
+        return request;
+    }
+}